@@ -71,37 +71,52 @@ public class AVLTree extends Tree{
 	public AVLTree() {
 	}
 	
+	// Walks down from the root with a loop and one comparison per level, see Tree
 	public void insert(Comparable element) { // O(log(n))
-		insertAtNode(element, (AVLTreeNode) root, null);
-	}
-	
-	private void insertAtNode(Comparable element, AVLTreeNode current, AVLTreeNode parent) { 	// O(log(n))
-		if (current == null) { 															// if the node we check is empty
-			AVLTreeNode newNode = new AVLTreeNode(element);
-			if (parent != null) { 														// the current node is empty, but we have a parent
-				if (element.compareTo(parent.value) < 0) { 								// do we add it to the left?
-					parent.setLeftNode(newNode);
-				} 
-				else {
-					parent.setRightNode(newNode); 										// or do we add it to the right?
-				}
-				balance(parent);
-			} 
-			else { 																		// the current node is empty and it has no parent, we actually have an empty tree
-				root = newNode;
+		AVLTreeNode parent = null;
+		AVLTreeNode current = (AVLTreeNode) root;
+		int comparison = 0;
+		while (current != null) {
+			comparison = element.compareTo(current.value);
+			if (comparison == 0) {
+				System.out.println("Element is already in tree."); 							// if the element is already in the tree, what to do?
+				return;
 			}
-			count += 1;
-		} 
-		else if (element.compareTo(current.value) == 0) {
-			System.out.println("Element is already in tree."); 							// if the element is already in the tree, what to do?
-		} 
-		else if (element.compareTo(current.value) < 0) { 								// if the element is smaller than current, go left
-			insertAtNode(element, current.getLeftNode(), current);
+			parent = current;
+			current = comparison < 0 ? current.getLeftNode() : current.getRightNode();	// smaller goes left, bigger goes right
+		}
+		AVLTreeNode newNode = new AVLTreeNode(element);
+		if (parent == null) { 															// we actually have an empty tree
+			root = newNode;
 		} 
-		else 																			// if the element is bigger than current, go right
-			insertAtNode(element, current.getRightNode(), current);
+		else {
+			if (comparison < 0) { 														// the last comparison tells the side
+				parent.setLeftNode(newNode);
+			} 
+			else {
+				parent.setRightNode(newNode);
+			}
+			balance(parent);
+		}
+		count += 1;
 	}
-
+	
+	// Links a new TreeNode right of the largest TreeNode and balances the Tree from there up, see Tree.append
+	protected void appendAfter(TreeNode last, Comparable element) { // O(log(n))
+		((AVLTreeNode) last).setRightNode(new AVLTreeNode(element));
+		balance((AVLTreeNode) last);
+	}
+	
+	// The TreeNodes of build know their parent and height, both subtrees differ at most one in height (see Tree.build)
+	protected TreeNode buildNode(Comparable value, TreeNode left, TreeNode right, int depth, int deepest) { // O(1)
+		AVLTreeNode n = new AVLTreeNode(value);
+		n.setLeftNode((AVLTreeNode) left);
+		n.setRightNode((AVLTreeNode) right);
+		correctHeight(n);
+		correctSize(n);
+		return n;
+	}
+	
 	private void splayLeft(AVLTreeNode n) { // O(1)
 		/*		  p							   p
 				 /							  /
@@ -117,6 +132,7 @@ public class AVLTree extends Tree{
 		rightTree.setLeftNode(n);				// n becomes the LeftTree of r (its RightTree)
 		if(n == super.root) {
 			super.root = rightTree;
+			rightTree.setParentNode(null);
 		}
 		else {
 			if(parent.getLeftNode() == n) {				// The RightTree now comes at the place where n used to be
@@ -128,6 +144,8 @@ public class AVLTree extends Tree{
 		}
 		correctHeight(n);
 		correctHeight(rightTree);
+		correctSize(n);
+		correctSize(rightTree);
 	}
 
 	private void splayRight(AVLTreeNode n) { // Similar to splayLeft but mirrored
@@ -144,7 +162,8 @@ public class AVLTree extends Tree{
 		n.setLeftNode(leftTree.getRightNode());	
 		leftTree.setRightNode(n);							  							   				
 		if(n == root) {								
-			root = leftTree;						
+			root = leftTree;
+			leftTree.setParentNode(null);
 		}											
 		else {										
 			if(parent.getRightNode() == n) {		
@@ -156,37 +175,74 @@ public class AVLTree extends Tree{
 		}
 		correctHeight(n);
 		correctHeight(leftTree);
+		correctSize(n);
+		correctSize(leftTree);
 	}
 
 	/* This method was based on the webpage mentioned in the beginning of the document.
 	   However it has been written to function with pointers to the parentNode as I found this resulted
-	   in more understandable/readable code. */
-	private void balance(AVLTreeNode n) {
-		AVLTreeNode parent = n.getParentNode();
-		correctHeight(n);
-		correctHeight(parent);
-		int balance = getBalance(parent);
-		if (balance > 1) {
-			if (n == parent.getLeftNode()) {
-				splayRight(parent);
+	   in more understandable/readable code.
+	   It walks from a TreeNode whose subtree changed (an element was added below it or removed from it) up
+	   to the root, corrects the height of every TreeNode on the way and rotates where the heights of both
+	   subtrees differ by more than one. The child on the heavy side decides between a single and a double rotation. */
+	private void balance(AVLTreeNode n) { // O(log(n))
+		while (n != null) {
+			AVLTreeNode parent = n == root ? null : n.getParentNode();	// A rotation moves n down, its subtree stays under parent
+			correctHeight(n);
+			correctSize(n);
+			int balance = getBalance(n);
+			if (balance > 1) {
+				if (getBalance(n.getLeftNode()) < 0) {
+					splayLeft(n.getLeftNode());
+				}
+				splayRight(n);
 			} 
-			else {
-				splayLeft(parent.getLeftNode());
-				splayRight(parent);
+			else if (balance < -1) {
+				if (getBalance(n.getRightNode()) > 0) {
+					splayRight(n.getRightNode());
+				}
+				splayLeft(n);
 			}
-		} 
-		else if (balance < -1) {
-			if (n == parent.getRightNode()) {
-				splayLeft(parent);
-			} 
-			else {
-				splayRight(parent.getRightNode());
-				splayLeft(parent);
+			n = parent;
+		}
+	}
+	
+	/* Removes an element from the Tree and returns the removed element, null if it is not in the Tree.
+	   A TreeNode with two children takes the value of its successor, which is removed instead (see Tree).
+	   The Tree is then balanced from the parent of the removed TreeNode up to the root. */
+	public Comparable delete(Comparable element) { // O(log(n))
+		TreeNode found = findNode(element, root);
+		if (found == null) {
+			System.out.println("Element is not in tree.");
+			return null;
+		}
+		AVLTreeNode n = (AVLTreeNode) found;
+		Comparable removed = n.value;
+		if (n.getLeftNode() != null && n.getRightNode() != null) {
+			AVLTreeNode successor = n.getRightNode();
+			while (successor.getLeftNode() != null) {
+				successor = successor.getLeftNode();
 			}
+			n.value = successor.value;
+			n = successor;
 		}
-		if(n != root && parent != root) {
-			balance(parent);
+		AVLTreeNode child = n.getLeftNode() != null ? n.getLeftNode() : n.getRightNode();
+		AVLTreeNode parent = n == root ? null : n.getParentNode();
+		if (parent == null) {
+			root = child;
+			if (child != null) {
+				child.setParentNode(null);
+			}
+		}
+		else if (parent.getLeftNode() == n) {
+			parent.setLeftNode(child);
+		}
+		else {
+			parent.setRightNode(child);
 		}
+		count -= 1;
+		balance(parent);
+		return removed;
 	}
 	
 
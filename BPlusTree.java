@@ -0,0 +1,648 @@
+/* This class is an implementation of a B+-tree with the same contract as the Tree class, so it can replace a
+ * RedBlackTree as an ordered index (see ManagementSystem and DictionaryTree).
+ * A binary Tree spends one small object per value, scattered over the memory, and a search jumps through about
+ * log2(n) of them. A B+-tree keeps up to ORDER values or children in one node, in sorted arrays which are searched
+ * with a binary search. So a search only visits log_ORDER(n) nodes: four levels hold more than ten million values.
+ * All values are in the leaves; the inner nodes only hold separating keys to guide a search and, per child, the
+ * amount of values below it (so select and rank work as in Tree). Every leaf points to the next leaf, a traversal
+ * or a range scan walks through the leaves from left to right without going up and down the tree.
+ * Every node except the root is at least half full: a full node is split in two, a node which becomes less than
+ * half full takes a value (or child) from a neighbour or is merged with it. Only when values are appended (each
+ * larger than all others, like new ids) the last leaf and inner nodes are split unevenly: the left part stays full
+ * and the new part at the end starts (almost) empty, so the BPlusTree fills up completely instead of half.
+ * There are no TreeNodes in a BPlusTree. The actions of a traversal get one TreeNode which only carries the value:
+ * it has no children and it is reused for every value.
+ * Author: Seppe Lampe
+ */
+public class BPlusTree extends Tree {
+	private static final int ORDER = 64;			// The maximum amount of values in a leaf and of children of an inner node
+	private static final int MIN = ORDER / 2;		// The minimum for every node except the root
+
+	private class Node {
+		private Comparable[] keys;				// Leaf: its values. Inner node: keys[i] separates children[i] and children[i + 1]
+		private Node[] children;				// null for a leaf
+		private int[] sizes;					// sizes[i] is the amount of values below children[i], null for a leaf
+		private int count;						// The amount of values of a leaf or of children of an inner node
+		private Node next;						// The next leaf, null for the last leaf and for inner nodes
+
+		public Node(boolean leaf) {
+			if (leaf) {
+				keys = new Comparable[ORDER + 1];		// One more, a node may overflow before it is split
+			}
+			else {
+				keys = new Comparable[ORDER];
+				children = new Node[ORDER + 1];
+				sizes = new int[ORDER + 1];
+			}
+			count = 0;
+			next = null;
+		}
+
+		public boolean isLeaf() {
+			return children == null;
+		}
+	}
+
+	private Node top;								// The root node, null for an empty BPlusTree
+	private int height;								// The amount of levels, the leaves included
+	private Node[] pathNodes;						// The inner nodes on the way to a leaf, reused by insert and delete
+	private int[] pathIndex;						// The child taken at each of them
+
+	public BPlusTree() {
+		top = null;
+		height = 0;
+		pathNodes = new Node[4];
+		pathIndex = new int[4];
+	}
+
+	// The position of the first value in a leaf which is not smaller than an element (binary search)
+	private int leafPosition(Node leaf, Comparable element) { // O(log(ORDER))
+		int low = 0;
+		int high = leaf.count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (element.compareTo(leaf.keys[middle]) > 0) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	// The child of an inner node to follow for an element: the amount of separating keys smaller than or equal to it
+	private int childIndex(Node inner, Comparable element) { // O(log(ORDER))
+		int low = 0;
+		int high = inner.count - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (element.compareTo(inner.keys[middle]) >= 0) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	// Walk down to the leaf of an element and remember the inner nodes and children on the way, returns the leaf
+	private Node descend(Comparable element) { // O(log(n))
+		if (pathNodes.length < height) {
+			pathNodes = new Node[height * 2];
+			pathIndex = new int[height * 2];
+		}
+		Node n = top;
+		int level = 0;
+		while (!n.isLeaf()) {
+			int i = childIndex(n, element);
+			pathNodes[level] = n;
+			pathIndex[level++] = i;
+			n = n.children[i];
+		}
+		return n;
+	}
+
+	// The amount of values below a node
+	private int weight(Node n) { // O(ORDER)
+		if (n.isLeaf()) {
+			return n.count;
+		}
+		int total = 0;
+		for (int i = 0; i < n.count; i++) {
+			total += n.sizes[i];
+		}
+		return total;
+	}
+
+	// Searches for an element, returns the value in the BPlusTree which equals it or null
+	public Comparable find(Comparable element) { // O(log(n))
+		if (top == null) {
+			return null;
+		}
+		Node n = top;
+		while (!n.isLeaf()) {
+			n = n.children[childIndex(n, element)];
+		}
+		int position = leafPosition(n, element);
+		if (position < n.count && element.compareTo(n.keys[position]) == 0) {
+			return n.keys[position];
+		}
+		return null;
+	}
+
+	// Adds an element to the BPlusTree, full nodes on the way back up are split (unevenly when appending, see above)
+	public void insert(Comparable element) { // O(log(n))
+		if (top == null) {
+			top = new Node(true);
+			height = 1;
+		}
+		Node leaf = descend(element);
+		int levels = height - 1;
+		int position = leafPosition(leaf, element);
+		if (position < leaf.count && element.compareTo(leaf.keys[position]) == 0) {
+			System.out.println("Element is already in tree.");
+			return;
+		}
+		for (int i = leaf.count; i > position; i--) {
+			leaf.keys[i] = leaf.keys[i - 1];
+		}
+		leaf.keys[position] = element;
+		leaf.count++;
+		for (int level = 0; level < levels; level++) {
+			pathNodes[level].sizes[pathIndex[level]]++;
+		}
+		count += 1;
+		if (leaf.count <= ORDER) {
+			return;
+		}
+		boolean appending = leaf.next == null && position == leaf.count - 1;
+		Node split = splitLeaf(leaf, appending ? ORDER : (leaf.count + 1) / 2);
+		Comparable separator = split.keys[0];
+		for (int level = levels - 1; level >= 0; level--) {
+			Node parent = pathNodes[level];
+			int i = pathIndex[level];
+			for (int j = parent.count - 1; j > i; j--) {			// Make room for the new child right of child i
+				parent.keys[j] = parent.keys[j - 1];
+			}
+			for (int j = parent.count; j > i + 1; j--) {
+				parent.children[j] = parent.children[j - 1];
+				parent.sizes[j] = parent.sizes[j - 1];
+			}
+			parent.keys[i] = separator;
+			parent.children[i + 1] = split;
+			parent.sizes[i + 1] = weight(split);
+			parent.sizes[i] -= parent.sizes[i + 1];
+			parent.count++;
+			if (parent.count <= ORDER) {
+				return;
+			}
+			appending = appending && i + 2 == parent.count;
+			int half = appending ? ORDER - 1 : (parent.count + 1) / 2;	// An inner node keeps at least two children
+			separator = parent.keys[half - 1];						// The key between both parts moves up
+			split = splitInner(parent, half);
+		}
+		Node newTop = new Node(false);							// The root itself was split
+		newTop.children[0] = top;
+		newTop.children[1] = split;
+		newTop.keys[0] = separator;
+		newTop.sizes[1] = weight(split);
+		newTop.sizes[0] = count - newTop.sizes[1];
+		newTop.count = 2;
+		top = newTop;
+		height++;
+	}
+
+	// Move the values of an overfull leaf from position half on to a new leaf right of it and return the new leaf
+	private Node splitLeaf(Node leaf, int half) { // O(ORDER)
+		Node right = new Node(true);
+		for (int i = half; i < leaf.count; i++) {
+			right.keys[i - half] = leaf.keys[i];
+			leaf.keys[i] = null;
+		}
+		right.count = leaf.count - half;
+		leaf.count = half;
+		right.next = leaf.next;
+		leaf.next = right;
+		return right;
+	}
+
+	// Move the children of an overfull inner node from position half on to a new node, the key between them is dropped
+	private Node splitInner(Node inner, int half) { // O(ORDER)
+		Node right = new Node(false);
+		for (int i = half; i < inner.count; i++) {
+			right.children[i - half] = inner.children[i];
+			right.sizes[i - half] = inner.sizes[i];
+			inner.children[i] = null;
+		}
+		for (int i = half; i < inner.count - 1; i++) {
+			right.keys[i - half] = inner.keys[i];
+		}
+		for (int i = half - 1; i < inner.count - 1; i++) {
+			inner.keys[i] = null;
+		}
+		right.count = inner.count - half;
+		inner.count = half;
+		return right;
+	}
+
+	// Insert already fills the BPlusTree completely when elements are appended
+	public void append(Comparable element) { // O(log(n))
+		insert(element);
+	}
+
+	/* Replaces the contents of the BPlusTree by the elements of an array, duplicates are kept once (see Tree.build).
+	   The sorted elements are cut into full leaves, and every level of inner nodes into full inner nodes, until
+	   one node remains. Where it does not work out evenly the values are spread, every node stays at least half full. */
+	public void build(Comparable[] elements) { // O(n) if sorted, O(n log(n)) otherwise
+		Comparable[] sorted = sortedElements(elements);
+		count = sorted.length;
+		top = null;
+		height = 0;
+		if (count == 0) {
+			return;
+		}
+		int groups = (count + ORDER - 1) / ORDER;
+		Node[] level = new Node[groups];
+		Comparable[] firsts = new Comparable[groups];			// The smallest value below each node of the level
+		int next = 0;
+		for (int g = 0; g < groups; g++) {
+			Node leaf = new Node(true);
+			leaf.count = count / groups + (g < count % groups ? 1 : 0);
+			System.arraycopy(sorted, next, leaf.keys, 0, leaf.count);
+			next += leaf.count;
+			firsts[g] = leaf.keys[0];
+			if (g > 0) {
+				level[g - 1].next = leaf;
+			}
+			level[g] = leaf;
+		}
+		height = 1;
+		while (level.length > 1) {
+			groups = (level.length + ORDER - 1) / ORDER;
+			Node[] parents = new Node[groups];
+			Comparable[] parentFirsts = new Comparable[groups];
+			next = 0;
+			for (int g = 0; g < groups; g++) {
+				Node inner = new Node(false);
+				inner.count = level.length / groups + (g < level.length % groups ? 1 : 0);
+				for (int j = 0; j < inner.count; j++) {
+					inner.children[j] = level[next + j];
+					inner.sizes[j] = weight(level[next + j]);
+					if (j > 0) {
+						inner.keys[j - 1] = firsts[next + j];
+					}
+				}
+				parentFirsts[g] = firsts[next];
+				next += inner.count;
+				parents[g] = inner;
+			}
+			level = parents;
+			firsts = parentFirsts;
+			height++;
+		}
+		top = level[0];
+	}
+
+	/* Removes an element from the BPlusTree and returns the removed value, null if it is not in the BPlusTree.
+	   A node which becomes less than half full borrows from a neighbour with more than half, otherwise it is
+	   merged with a neighbour, which removes a child from the parent: this may go on up to the root. */
+	public Comparable delete(Comparable element) { // O(log(n))
+		Node leaf = top == null ? null : descend(element);
+		int position = leaf == null ? 0 : leafPosition(leaf, element);
+		if (leaf == null || position == leaf.count || element.compareTo(leaf.keys[position]) != 0) {
+			System.out.println("Element is not in tree.");
+			return null;
+		}
+		int levels = height - 1;
+		Comparable removed = leaf.keys[position];
+		for (int i = position; i < leaf.count - 1; i++) {
+			leaf.keys[i] = leaf.keys[i + 1];
+		}
+		leaf.keys[--leaf.count] = null;
+		for (int level = 0; level < levels; level++) {
+			pathNodes[level].sizes[pathIndex[level]]--;
+		}
+		count -= 1;
+		Node n = leaf;
+		for (int level = levels - 1; level >= 0 && n.count < MIN; level--) {
+			Node parent = pathNodes[level];
+			int i = pathIndex[level];
+			if (i > 0 && parent.children[i - 1].count > MIN) {
+				borrowFromLeft(parent, i);
+			}
+			else if (i + 1 < parent.count && parent.children[i + 1].count > MIN) {
+				borrowFromRight(parent, i);
+			}
+			else if (i > 0) {
+				merge(parent, i - 1);
+			}
+			else {
+				merge(parent, i);
+			}
+			n = parent;
+		}
+		if (!top.isLeaf() && top.count == 1) {					// The root lost its last separating key
+			top = top.children[0];
+			height--;
+		}
+		else if (top.isLeaf() && top.count == 0) {
+			top = null;
+			height = 0;
+		}
+		return removed;
+	}
+
+	// Child i of an inner node takes the last value or child of child i - 1
+	private void borrowFromLeft(Node parent, int i) { // O(ORDER)
+		Node node = parent.children[i];
+		Node left = parent.children[i - 1];
+		if (node.isLeaf()) {
+			for (int j = node.count; j > 0; j--) {
+				node.keys[j] = node.keys[j - 1];
+			}
+			node.keys[0] = left.keys[left.count - 1];
+			left.keys[left.count - 1] = null;
+			parent.keys[i - 1] = node.keys[0];
+			parent.sizes[i - 1]--;
+			parent.sizes[i]++;
+		}
+		else {
+			for (int j = node.count - 1; j > 0; j--) {
+				node.keys[j] = node.keys[j - 1];
+			}
+			for (int j = node.count; j > 0; j--) {
+				node.children[j] = node.children[j - 1];
+				node.sizes[j] = node.sizes[j - 1];
+			}
+			node.keys[0] = parent.keys[i - 1];						// The separating key moves down, the last key of left moves up
+			node.children[0] = left.children[left.count - 1];
+			node.sizes[0] = left.sizes[left.count - 1];
+			parent.keys[i - 1] = left.keys[left.count - 2];
+			left.keys[left.count - 2] = null;
+			left.children[left.count - 1] = null;
+			parent.sizes[i - 1] -= node.sizes[0];
+			parent.sizes[i] += node.sizes[0];
+		}
+		node.count++;
+		left.count--;
+	}
+
+	// Child i of an inner node takes the first value or child of child i + 1
+	private void borrowFromRight(Node parent, int i) { // O(ORDER)
+		Node node = parent.children[i];
+		Node right = parent.children[i + 1];
+		if (node.isLeaf()) {
+			node.keys[node.count] = right.keys[0];
+			for (int j = 0; j < right.count - 1; j++) {
+				right.keys[j] = right.keys[j + 1];
+			}
+			right.keys[right.count - 1] = null;
+			parent.keys[i] = right.keys[0];
+			parent.sizes[i]++;
+			parent.sizes[i + 1]--;
+		}
+		else {
+			int moved = right.sizes[0];
+			node.keys[node.count - 1] = parent.keys[i];				// The separating key moves down, the first key of right moves up
+			node.children[node.count] = right.children[0];
+			node.sizes[node.count] = moved;
+			parent.keys[i] = right.keys[0];
+			for (int j = 0; j < right.count - 2; j++) {
+				right.keys[j] = right.keys[j + 1];
+			}
+			right.keys[right.count - 2] = null;
+			for (int j = 0; j < right.count - 1; j++) {
+				right.children[j] = right.children[j + 1];
+				right.sizes[j] = right.sizes[j + 1];
+			}
+			right.children[right.count - 1] = null;
+			parent.sizes[i] += moved;
+			parent.sizes[i + 1] -= moved;
+		}
+		node.count++;
+		right.count--;
+	}
+
+	// Merge child i + 1 of an inner node into child i, the parent loses the key between them and a child
+	private void merge(Node parent, int i) { // O(ORDER)
+		Node left = parent.children[i];
+		Node right = parent.children[i + 1];
+		if (left.isLeaf()) {
+			for (int j = 0; j < right.count; j++) {
+				left.keys[left.count + j] = right.keys[j];
+			}
+			left.next = right.next;
+		}
+		else {
+			left.keys[left.count - 1] = parent.keys[i];
+			for (int j = 0; j < right.count - 1; j++) {
+				left.keys[left.count + j] = right.keys[j];
+			}
+			for (int j = 0; j < right.count; j++) {
+				left.children[left.count + j] = right.children[j];
+				left.sizes[left.count + j] = right.sizes[j];
+			}
+		}
+		left.count += right.count;
+		parent.sizes[i] += parent.sizes[i + 1];
+		for (int j = i; j < parent.count - 2; j++) {
+			parent.keys[j] = parent.keys[j + 1];
+		}
+		parent.keys[parent.count - 2] = null;
+		for (int j = i + 1; j < parent.count - 1; j++) {
+			parent.children[j] = parent.children[j + 1];
+			parent.sizes[j] = parent.sizes[j + 1];
+		}
+		parent.children[parent.count - 1] = null;
+		parent.count--;
+	}
+
+	// Returns the value at a position in the order of the BPlusTree, 0 for the smallest value, null if there is no such position
+	public Comparable select(int index) { // O(log(n))
+		if (index < 0 || index >= count) {
+			return null;
+		}
+		Node n = top;
+		while (!n.isLeaf()) {
+			int i = 0;
+			while (index >= n.sizes[i]) {
+				index -= n.sizes[i];
+				i++;
+			}
+			n = n.children[i];
+		}
+		return n.keys[index];
+	}
+
+	// Returns the amount of values smaller than an element, its position in the order if it is in the BPlusTree
+	public int rank(Comparable element) { // O(log(n))
+		return countBelow(element, false);
+	}
+
+	// Returns the amount of values between low and high (both included)
+	public int countBetween(Comparable low, Comparable high) { // O(log(n))
+		if (low.compareTo(high) > 0) {
+			return 0;
+		}
+		return countBelow(high, true) - countBelow(low, false);
+	}
+
+	// Counts the values smaller than an element (or equal to it as well): all values below the children left of the path
+	private int countBelow(Comparable element, boolean inclusive) { // O(log(n))
+		if (top == null) {
+			return 0;
+		}
+		int result = 0;
+		Node n = top;
+		while (!n.isLeaf()) {
+			int i = childIndex(n, element);
+			for (int j = 0; j < i; j++) {
+				result += n.sizes[j];
+			}
+			n = n.children[i];
+		}
+		int position = leafPosition(n, element);
+		if (inclusive && position < n.count && element.compareTo(n.keys[position]) == 0) {
+			position++;
+		}
+		return result + position;
+	}
+
+	// The neighbours of a value follow from its rank, see Tree for their meaning
+	public Comparable floor(Comparable element) { // O(log(n))
+		return select(countBelow(element, true) - 1);
+	}
+
+	public Comparable ceiling(Comparable element) { // O(log(n))
+		return select(countBelow(element, false));
+	}
+
+	public Comparable lower(Comparable element) { // O(log(n))
+		return select(countBelow(element, false) - 1);
+	}
+
+	public Comparable higher(Comparable element) { // O(log(n))
+		return select(countBelow(element, true));
+	}
+
+	// Performs an action on/at each value in order, by walking through the leaves
+	public void traverseInOrder(TreeAction action) { // O(n)
+		LeafCursor cursor = new LeafCursor();
+		while (cursor.hasNext()) {
+			action.run(cursor.nextNode());
+		}
+	}
+
+	// There are no subtrees of TreeNodes in a BPlusTree: the whole BPlusTree is traversed in order
+	public void traverseNode(TreeNode n, TreeAction action) { // O(n)
+		traverseInOrder(action);
+	}
+
+	// Traverses the BPlusTree in order, it has no TreeNodes to visit level by level
+	public void traverse(TreeAction action) { // O(n)
+		traverseInOrder(action);
+	}
+
+	// Performs an action on/at each value between low and high (both included), in order, starting in the leaf of low
+	public void traverseRange(Comparable low, Comparable high, TreeAction action) { // O(log(n) + k), k values in the range
+		LeafCursor cursor = new LeafCursor();
+		cursor.seek(low);
+		while (cursor.hasNext()) {
+			TreeNode n = cursor.nextNode();
+			if (high.compareTo(n.getValue()) < 0) {
+				return;
+			}
+			action.run(n);
+		}
+	}
+
+	// Returns a Cursor at the smallest value of the BPlusTree
+	public Cursor cursor() { // O(log(n))
+		return new LeafCursor();
+	}
+
+	/* A Cursor which walks through the leaves: a leaf and a position in it, no stack is needed.
+	   The TreeNodes it returns only carry a value and are reused. */
+	private class LeafCursor extends Cursor {
+		private Node leaf;
+		private int position;
+		private TreeNode current;
+
+		public LeafCursor() {
+			super(null);
+			current = new TreeNode(null);
+			reset();
+		}
+
+		// A BPlusTree has no TreeNodes to start from, the Cursor starts at the smallest value
+		public void reset(TreeNode start) { // O(log(n))
+			reset();
+		}
+
+		public void reset() { // O(log(n))
+			leaf = top;
+			while (leaf != null && !leaf.isLeaf()) {
+				leaf = leaf.children[0];
+			}
+			position = 0;
+		}
+
+		public void seek(Comparable low) { // O(log(n))
+			if (top == null) {
+				leaf = null;
+				return;
+			}
+			leaf = top;
+			while (!leaf.isLeaf()) {
+				leaf = leaf.children[childIndex(leaf, low)];
+			}
+			position = leafPosition(leaf, low);
+			if (position == leaf.count) {					// All values of this leaf are smaller, continue in the next one
+				leaf = leaf.next;
+				position = 0;
+			}
+		}
+
+		public boolean hasNext() { // O(1)
+			return leaf != null && position < leaf.count;
+		}
+
+		public TreeNode nextNode() { // O(1)
+			current.value = leaf.keys[position++];
+			if (position == leaf.count) {
+				leaf = leaf.next;
+				position = 0;
+			}
+			return current;
+		}
+
+		public Comparable next() { // O(1)
+			return nextNode().getValue();
+		}
+	}
+
+	// Returns the amount of levels of the BPlusTree
+	public int findDepth() { // O(1)
+		return height;
+	}
+
+	public int findMax() { // O(log(n))
+		return (int) select(count - 1);
+	}
+
+	// Prints the BPlusTree level by level, every node between brackets
+	public void printTree() { // O(n)
+		Node[] level = top == null ? new Node[0] : new Node[] { top };
+		while (level.length > 0) {
+			String line = "";
+			for (int i = 0; i < level.length; i++) {
+				int keys = level[i].isLeaf() ? level[i].count : level[i].count - 1;
+				line += "[";
+				for (int j = 0; j < keys; j++) {
+					line += (j > 0 ? " " : "") + level[i].keys[j];
+				}
+				line += "] ";
+			}
+			System.out.println(line);
+			level = level[0].isLeaf() ? new Node[0] : nodesBelow(level);
+		}
+	}
+
+	// The children of all nodes of one level, in order
+	private Node[] nodesBelow(Node[] level) {
+		int total = 0;
+		for (int i = 0; i < level.length; i++) {
+			total += level[i].count;
+		}
+		Node[] result = new Node[total];
+		int k = 0;
+		for (int i = 0; i < level.length; i++) {
+			for (int j = 0; j < level[i].count; j++) {
+				result[k++] = level[i].children[j];
+			}
+		}
+		return result;
+	}
+}
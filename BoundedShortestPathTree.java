@@ -0,0 +1,73 @@
+/* A BoundedShortestPathTree is the result of a single-source search limited by a radius: a ShortestPathTree which
+ * only holds the Nodes it settled. The i-th settled Node has its distance and the position of its previous Node in
+ * the settled list, so it costs memory in proportion to the Nodes within the radius instead of the size of the Graph.
+ * A small hash index (open addressing, at most half full) finds the position of a Node in the settled list.
+ * Author: Seppe Lampe
+ */
+public class BoundedShortestPathTree extends ShortestPathTree {
+	private double[] settledDistance;			// settledDistance[i] is the distance from the source to the i-th settled Node
+	private int[] settledPrevious;				// The position of the previous Node of the i-th settled Node, -1 for the source
+	private int[] index;						// Hash index: position + 1 of a settled Node, 0 for an empty slot
+
+	// Copies the first 'length' settled Nodes, their distances and the positions of their previous Nodes
+	public BoundedShortestPathTree(FrozenGraph graph, int source, int[] settled, double[] distance, int[] previous, int length) {
+		super(graph, source, new int[length], length);
+		settledDistance = new double[length];
+		settledPrevious = new int[length];
+		for (int i = 0; i < length; i++) {
+			this.settled[i] = settled[i];
+			settledDistance[i] = distance[i];
+			settledPrevious[i] = previous[i];
+		}
+		index = new int[Integer.highestOneBit(Math.max(length, 1)) * 4];
+		int mask = index.length - 1;
+		for (int i = 0; i < length; i++) {
+			int slot = slot(settled[i], mask);
+			while (index[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			index[slot] = i + 1;
+		}
+	}
+
+	// Return the position of a Node in the settled list, -1 if it was not settled
+	private int indexOf(int id) {													//O(1) on average
+		int mask = index.length - 1;
+		for (int slot = slot(id, mask); index[slot] != 0; slot = (slot + 1) & mask) {
+			if (settled[index[slot] - 1] == id) {
+				return index[slot] - 1;
+			}
+		}
+		return -1;
+	}
+
+	private int slot(int id, int mask) {
+		int h = id * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	public boolean hasPathTo(int id) {												//O(1) on average
+		return id >= 0 && indexOf(id) != -1;
+	}
+
+	public double distanceTo(int id) {												//O(1) on average
+		int i = id >= 0 ? indexOf(id) : -1;
+		if (i == -1) {
+			return -1;
+		}
+		return settledDistance[i];
+	}
+
+	public Vector pathTo(int id) {													//O(length of the path)
+		Vector path = new Vector(5);
+		for (int i = id >= 0 ? indexOf(id) : -1; i != -1; i = settledPrevious[i]) {
+			path.addLast(graph.getLabel(settled[i]));
+		}
+		path.reverse();
+		return path;
+	}
+
+	public double getDistance(int i) {												//O(1)
+		return settledDistance[i];
+	}
+}
@@ -0,0 +1,420 @@
+/* This class is an implementation of a lock-free skip list with the same contract as the Tree class, so it can
+ * replace a RedBlackTree as an ordered index which many threads search and change at the same time (see ManagementSystem).
+ * A skip list is a sorted linked list with express lanes: every Node is on level 0, about half of them also on
+ * level 1, a quarter on level 2 and so on (the level of a new Node is drawn at random). A search starts on the
+ * highest level and goes down a level whenever the next Node is too large, so it visits O(log(n)) Nodes on average.
+ * No thread ever waits for a lock. Every pointer to a next Node is changed with a compare-and-set, so of two threads
+ * which change the same pointer one succeeds and the other one tries again. A Node is removed in two steps: first
+ * its own pointers are marked, from its highest level down to level 0; the thread which marks level 0 has removed
+ * the value. Then the Node is unlinked, by that thread or by any search which passes it. A marked Node is skipped
+ * by every search, so a value is in the list exactly as long as its Node is linked on level 0 and not marked.
+ * Searches (find, floor, ..., traversals) never change anything and never wait. A traversal or range sees every
+ * value which is in the list during the whole traversal, values added or removed in the meantime may or may not be seen.
+ * A skip list keeps no subtree sizes: select, rank and countBetween walk along level 0 and take linear time.
+ * The actions of a traversal get a TreeNode which only carries the value, see BPlusTree.
+ * Author: Seppe Lampe
+ */
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+public class ConcurrentSkipList extends Tree {
+	private static final int MAX_LEVEL = 31;			// Enough for 2^32 values
+
+	private static class Node {
+		private final Comparable value;					// null for the head
+		private final AtomicMarkableReference[] next;	// The next Node on every level, marked once this Node is being removed
+		private final int topLevel;
+
+		public Node(Comparable value, int topLevel) {
+			this.value = value;
+			this.topLevel = topLevel;
+			next = new AtomicMarkableReference[topLevel + 1];
+			for (int level = 0; level <= topLevel; level++) {
+				next[level] = new AtomicMarkableReference(null, false);
+			}
+		}
+
+		public Node getNext(int level) { // O(1)
+			return (Node) next[level].getReference();
+		}
+
+		// Whether the value of this Node has been removed
+		public boolean isRemoved() { // O(1)
+			return next[0].isMarked();
+		}
+	}
+
+	private volatile Node head;							// Before the smallest value on every level, replaced at once by build
+	private final AtomicInteger size;
+
+	public ConcurrentSkipList() {
+		head = new Node(null, MAX_LEVEL);
+		size = new AtomicInteger(0);
+	}
+
+	// The level of a new Node: each level further up with a chance of one half
+	private int randomLevel() { // O(1)
+		int random = ThreadLocalRandom.current().nextInt();
+		return Math.min(Integer.numberOfTrailingZeros(random), MAX_LEVEL);
+	}
+
+	/* Walks down to an element and fills in, on every level, the last Node smaller than it (preds) and the Node after
+	   that (succs). Marked Nodes on the way are unlinked; when that fails, another thread changed the list right there
+	   and the walk starts over from the head. Returns whether the element is in the list. */
+	private boolean find(Comparable element, Node[] preds, Node[] succs) { // O(log(n)) on average
+		boolean[] marked = new boolean[1];
+		retry:
+		while (true) {
+			Node pred = head;
+			for (int level = MAX_LEVEL; level >= 0; level--) {
+				Node current = pred.getNext(level);
+				while (current != null) {
+					Node succ = (Node) current.next[level].get(marked);
+					if (marked[0]) {												// current is being removed, unlink it on this level
+						if (!pred.next[level].compareAndSet(current, succ, false, false)) {
+							continue retry;
+						}
+						current = succ;
+					}
+					else if (element.compareTo(current.value) > 0) {
+						pred = current;
+						current = succ;
+					}
+					else {
+						break;
+					}
+				}
+				preds[level] = pred;
+				succs[level] = current;
+			}
+			return succs[0] != null && element.compareTo(succs[0].value) == 0;
+		}
+	}
+
+	/* Walks down to the first Node which is not smaller than an element without changing anything, marked Nodes
+	   are stepped over. The last Node smaller than the element on level 0 is put in below[0] (the head if there is none). */
+	private Node firstAtLeast(Comparable element, Node[] below) { // O(log(n)) on average
+		boolean[] marked = new boolean[1];
+		Node pred = head;
+		Node current = null;
+		for (int level = MAX_LEVEL; level >= 0; level--) {
+			current = pred.getNext(level);
+			while (current != null) {
+				Node succ = (Node) current.next[level].get(marked);
+				if (marked[0]) {
+					current = succ;
+				}
+				else if (element.compareTo(current.value) > 0) {
+					pred = current;
+					current = succ;
+				}
+				else {
+					break;
+				}
+			}
+		}
+		if (below != null) {
+			below[0] = pred;
+		}
+		return current;
+	}
+
+	// The first Node after a Node on level 0 whose value has not been removed, null if there is none
+	private Node nextLive(Node n) { // O(1) without removals
+		Node current = n.getNext(0);
+		while (current != null && current.isRemoved()) {
+			current = current.getNext(0);
+		}
+		return current;
+	}
+
+	// Searches for an element, returns the value in the list which equals it or null
+	public Comparable find(Comparable element) { // O(log(n)) on average
+		Node n = firstAtLeast(element, null);
+		if (n != null && element.compareTo(n.value) == 0) {
+			return n.value;
+		}
+		return null;
+	}
+
+	// Adds an element to the list, see insertIfAbsent
+	public void insert(Comparable element) { // O(log(n)) on average
+		if (insertIfAbsent(element) != null) {
+			System.out.println("Element is already in tree.");
+		}
+	}
+
+	/* Adds an element to the list unless an equal value is in it, returns that value or null if the element was added.
+	   Of several threads adding equal elements at the same time exactly one adds its element, the others get it back.
+	   The new Node is first linked on level 0, which adds the value, and then on the higher levels one by one.
+	   When a compare-and-set fails the list changed around the element: it is searched again. */
+	public Comparable insertIfAbsent(Comparable element) { // O(log(n)) on average
+		int topLevel = randomLevel();
+		Node[] preds = new Node[MAX_LEVEL + 1];
+		Node[] succs = new Node[MAX_LEVEL + 1];
+		Node node = new Node(element, topLevel);
+		while (true) {
+			if (find(element, preds, succs)) {
+				return succs[0].value;
+			}
+			for (int level = 0; level <= topLevel; level++) {
+				node.next[level].set(succs[level], false);
+			}
+			if (preds[0].next[0].compareAndSet(succs[0], node, false, false)) {
+				break;
+			}
+		}
+		size.incrementAndGet();
+		boolean[] marked = new boolean[1];
+		for (int level = 1; level <= topLevel; level++) {
+			while (true) {
+				Node succ = (Node) node.next[level].get(marked);
+				if (marked[0]) {												// Already being removed, it needs no more levels
+					return null;
+				}
+				if (succ != succs[level] && !node.next[level].compareAndSet(succ, succs[level], false, false)) {
+					continue;
+				}
+				if (preds[level].next[level].compareAndSet(succs[level], node, false, false)) {
+					break;
+				}
+				find(element, preds, succs);
+			}
+		}
+		return null;
+	}
+
+	// A skip list has no right side to walk down, an appended element is inserted as usual
+	public void append(Comparable element) { // O(log(n)) on average
+		insert(element);
+	}
+
+	/* Removes an element from the list and returns the removed value, null if it is not in the list.
+	   The pointers of its Node are marked from the top down; the thread which marks level 0 removed the value
+	   and searches once more, which unlinks the Node on every level. */
+	public Comparable delete(Comparable element) { // O(log(n)) on average
+		Node[] preds = new Node[MAX_LEVEL + 1];
+		Node[] succs = new Node[MAX_LEVEL + 1];
+		if (!find(element, preds, succs)) {
+			System.out.println("Element is not in tree.");
+			return null;
+		}
+		Node node = succs[0];
+		boolean[] marked = new boolean[1];
+		for (int level = node.topLevel; level >= 1; level--) {
+			Node succ = (Node) node.next[level].get(marked);
+			while (!marked[0]) {
+				node.next[level].compareAndSet(succ, succ, false, true);
+				succ = (Node) node.next[level].get(marked);
+			}
+		}
+		Node succ = (Node) node.next[0].get(marked);
+		while (!marked[0]) {
+			if (node.next[0].compareAndSet(succ, succ, false, true)) {
+				find(element, preds, succs);
+				size.decrementAndGet();
+				return node.value;
+			}
+			succ = (Node) node.next[0].get(marked);
+		}
+		System.out.println("Element is not in tree.");						// Another thread removed it first
+		return null;
+	}
+
+	/* Replaces the contents of the list by the elements of an array, duplicates are kept once (see Tree.build).
+	   The sorted elements are linked behind a new head, level by level, and the new head replaces the old one at once:
+	   a search sees either the old or the new contents. Changes made by other threads in the meantime are lost. */
+	public void build(Comparable[] elements) { // O(n) if sorted, O(n log(n)) otherwise
+		Comparable[] sorted = sortedElements(elements);
+		Node newHead = new Node(null, MAX_LEVEL);
+		Node[] last = new Node[MAX_LEVEL + 1];					// The last Node linked on every level
+		for (int level = 0; level <= MAX_LEVEL; level++) {
+			last[level] = newHead;
+		}
+		for (int i = 0; i < sorted.length; i++) {
+			Node node = new Node(sorted[i], randomLevel());
+			for (int level = 0; level <= node.topLevel; level++) {
+				last[level].next[level].set(node, false);
+				last[level] = node;
+			}
+		}
+		head = newHead;
+		size.set(sorted.length);
+	}
+
+	// Returns the amount of values in the list
+	public int size() { // O(1)
+		return size.get();
+	}
+
+	// The neighbours of a value, see Tree for their meaning
+	public Comparable floor(Comparable element) { // O(log(n)) on average
+		Node[] below = new Node[1];
+		Node n = firstAtLeast(element, below);
+		if (n != null && element.compareTo(n.value) == 0) {
+			return n.value;
+		}
+		return below[0].value;											// null for the head
+	}
+
+	public Comparable ceiling(Comparable element) { // O(log(n)) on average
+		Node n = firstAtLeast(element, null);
+		return n == null ? null : n.value;
+	}
+
+	public Comparable lower(Comparable element) { // O(log(n)) on average
+		Node[] below = new Node[1];
+		firstAtLeast(element, below);
+		return below[0].value;
+	}
+
+	public Comparable higher(Comparable element) { // O(log(n)) on average
+		Node n = firstAtLeast(element, null);
+		if (n != null && element.compareTo(n.value) == 0) {
+			n = nextLive(n);
+		}
+		return n == null ? null : n.value;
+	}
+
+	// Returns the value at a position in the order of the list, 0 for the smallest value, null if there is no such position
+	public Comparable select(int index) { // O(index)
+		if (index < 0) {
+			return null;
+		}
+		Node n = nextLive(head);
+		for (int i = 0; i < index && n != null; i++) {
+			n = nextLive(n);
+		}
+		return n == null ? null : n.value;
+	}
+
+	// Returns the amount of values smaller than an element
+	public int rank(Comparable element) { // O(rank)
+		int result = 0;
+		for (Node n = nextLive(head); n != null && element.compareTo(n.value) > 0; n = nextLive(n)) {
+			result++;
+		}
+		return result;
+	}
+
+	// Returns the amount of values between low and high (both included)
+	public int countBetween(Comparable low, Comparable high) { // O(log(n) + k), k values in the range
+		int result = 0;
+		for (Node n = firstAtLeast(low, null); n != null && high.compareTo(n.value) >= 0; n = nextLive(n)) {
+			result++;
+		}
+		return result;
+	}
+
+	// Performs an action on/at each value in order, by walking along level 0
+	public void traverseInOrder(TreeAction action) { // O(n)
+		ListCursor cursor = new ListCursor();
+		while (cursor.hasNext()) {
+			action.run(cursor.nextNode());
+		}
+	}
+
+	// There are no subtrees of TreeNodes in a skip list: the whole list is traversed in order
+	public void traverseNode(TreeNode n, TreeAction action) { // O(n)
+		traverseInOrder(action);
+	}
+
+	// Traverses the list in order, it has no TreeNodes to visit level by level
+	public void traverse(TreeAction action) { // O(n)
+		traverseInOrder(action);
+	}
+
+	// Performs an action on/at each value between low and high (both included), in order
+	public void traverseRange(Comparable low, Comparable high, TreeAction action) { // O(log(n) + k), k values in the range
+		ListCursor cursor = new ListCursor();
+		cursor.seek(low);
+		while (cursor.hasNext()) {
+			TreeNode n = cursor.nextNode();
+			if (high.compareTo(n.getValue()) < 0) {
+				return;
+			}
+			action.run(n);
+		}
+	}
+
+	// Returns a Cursor at the smallest value of the list
+	public Cursor cursor() { // O(1)
+		return new ListCursor();
+	}
+
+	/* A Cursor which walks along level 0 and steps over removed values. Each Cursor has its own TreeNode to
+	   return the values in, so every thread can walk with its own Cursor. */
+	private class ListCursor extends Cursor {
+		private Node following;
+		private TreeNode current;
+
+		public ListCursor() {
+			super(null);
+			current = new TreeNode(null);
+			reset();
+		}
+
+		// A skip list has no TreeNodes to start from, the Cursor starts at the smallest value
+		public void reset(TreeNode start) { // O(1)
+			reset();
+		}
+
+		public void reset() { // O(1)
+			following = nextLive(head);
+		}
+
+		public void seek(Comparable low) { // O(log(n)) on average
+			following = firstAtLeast(low, null);
+		}
+
+		public boolean hasNext() { // O(1)
+			return following != null;
+		}
+
+		public TreeNode nextNode() { // O(1) without removals
+			current.value = following.value;
+			following = nextLive(following);
+			return current;
+		}
+
+		public Comparable next() { // O(1) without removals
+			return nextNode().getValue();
+		}
+	}
+
+	// Returns the amount of levels in use
+	public int findDepth() { // O(log(n))
+		int level = MAX_LEVEL;
+		while (level >= 0 && head.getNext(level) == null) {
+			level--;
+		}
+		return level + 1;
+	}
+
+	// Returns the largest value, by going right on every level as far as possible
+	public int findMax() { // O(log(n)) on average
+		Node pred = head;
+		for (int level = MAX_LEVEL; level >= 0; level--) {
+			for (Node n = pred.getNext(level); n != null; n = n.getNext(level)) {
+				if (!n.isRemoved()) {
+					pred = n;
+				}
+			}
+		}
+		return (int) pred.value;
+	}
+
+	// Prints the values on every level in use, the highest level first
+	public void printTree() { // O(n)
+		for (int level = findDepth() - 1; level >= 0; level--) {
+			String line = "";
+			for (Node n = head.getNext(level); n != null; n = n.getNext(level)) {
+				if (!n.isRemoved()) {
+					line += n.value + " ";
+				}
+			}
+			System.out.println(line);
+		}
+	}
+}
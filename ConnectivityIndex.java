@@ -0,0 +1,290 @@
+/* This class answers whether there is a path from one Node to another in a FrozenGraph with directed Edges, without a search.
+ * First the strongly connected components are found (Tarjan's algorithm, without recursion so long roads do not
+ * overflow the stack): inside a component every Node reaches every other Node. Shrinking every component to a
+ * single Node gives the condensation, a graph without cycles. Tarjan finds the components in reverse topological
+ * order, so an Edge of the condensation always goes from a higher to a lower component number.
+ * For every component a bitset of the components it reaches is then built, lowest number first, as the union of
+ * the bitsets of its successors. A question is then answered by testing one bit.
+ * The bitsets take components^2 / 8 bytes; with more than MAX_BITSET_COMPONENTS components they are not built and
+ * a question becomes a search over the condensation, which only visits components numbered between both ends.
+ * An Edge added to the Graph afterwards is given to addEdge. If it connects nothing new the index stays as it is.
+ * Otherwise the bitset of the component it leads to is joined into the bitset of every component which reaches its
+ * start, or without bitsets the Edge is kept aside and the searches follow it too, until MAX_ADDED_EDGES of them
+ * make a rebuild cheaper. Added Edges only make more Nodes reachable, so a question asked during addEdge gets the
+ * answer from before or after the Edge.
+ * Author: Seppe Lampe
+ */
+public class ConnectivityIndex {
+	private static final int MAX_BITSET_COMPONENTS = 1 << 14;	// At most 32 MB of bitsets
+	private static final int MAX_ADDED_EDGES = 64;				// Without bitsets, the Edges kept aside before the index is built again
+
+	private FrozenGraph graph;
+	private int[] component;					// component[id] is the number of the strongly connected component of a Node
+	private int componentCount;
+	private int[] dagOffsets;					// The condensation: the successors of component c are at dagOffsets[c] ... dagOffsets[c + 1] - 1
+	private int[] dagTargets;
+	private long[] reach;						// Bit d of the bitset of component c (reach[c * words + d / 64]) is set if c reaches d
+	private int words;
+	private int[] addedFrom;					// Without bitsets: the components of the Edges added since the index was built
+	private int[] addedTo;
+	private volatile int addedCount;			// Written after the arrays, so a question reads it first
+
+	public ConnectivityIndex(FrozenGraph graph) {										//O(V+E + C*E'/64), C components and E' Edges between them
+		this.graph = graph;
+		findComponents();
+		buildCondensation();
+		if (componentCount <= MAX_BITSET_COMPONENTS) {
+			buildBitsets();
+		}
+	}
+
+	// Return the FrozenGraph for which the index was built
+	public FrozenGraph getGraph() {														//O(1)
+		return graph;
+	}
+
+	// Return the amount of Nodes the index knows, Nodes added to the Graph later are not in it
+	public int size() {																	//O(1)
+		return component.length;
+	}
+
+	// Return the amount of strongly connected components
+	public int getComponentCount() {													//O(1)
+		return componentCount;
+	}
+
+	// Return the number of the strongly connected component of a Node
+	public int getComponent(int id) {													//O(1)
+		return component[id];
+	}
+
+	// Return whether there is a path from one Node to another
+	public boolean reachable(int from, int to) {										//O(1) with bitsets
+		int a = component[from];
+		int b = component[to];
+		if (a == b) {
+			return true;
+		}
+		if (reach != null) {
+			return (reach[a * words + (b >>> 6)] & (1L << (b & 63))) != 0;
+		}
+		int added = addedCount;
+		if (added > 0) {
+			return search(a, b, added);
+		}
+		if (b > a) {								// Edges of the condensation only go to lower numbers
+			return false;
+		}
+		boolean[] seen = new boolean[a - b + 1];	// Only components numbered b ... a can be on the way
+		int[] stack = new int[a - b + 1];
+		int top = 0;
+		stack[top++] = a;
+		seen[0] = true;
+		while (top > 0) {
+			int c = stack[--top];
+			for (int e = dagOffsets[c]; e < dagOffsets[c + 1]; e++) {
+				int d = dagTargets[e];
+				if (d == b) {
+					return true;
+				}
+				if (d > b && !seen[a - d]) {
+					seen[a - d] = true;
+					stack[top++] = d;
+				}
+			}
+		}
+		return false;
+	}
+
+	// A search over the condensation and the first 'added' Edges kept aside, which may go to any component
+	private boolean search(int a, int b, int added) {									//O(C + E' + C*added)
+		int[] from = addedFrom;
+		int[] to = addedTo;
+		boolean[] seen = new boolean[componentCount];
+		int[] stack = new int[componentCount];
+		int top = 0;
+		stack[top++] = a;
+		seen[a] = true;
+		while (top > 0) {
+			int c = stack[--top];
+			for (int e = dagOffsets[c]; e < dagOffsets[c + 1]; e++) {
+				int d = dagTargets[e];
+				if (!seen[d]) {
+					seen[d] = true;
+					stack[top++] = d;
+				}
+			}
+			for (int i = 0; i < added; i++) {
+				if (from[i] == c && !seen[to[i]]) {
+					seen[to[i]] = true;
+					stack[top++] = to[i];
+				}
+			}
+		}
+		return seen[b];
+	}
+
+	/* Take an Edge which was added to the Graph into account. Returns false if the index cannot follow it (one of
+	   its Nodes is not in the index or too many Edges were kept aside), then it has to be built again. */
+	public boolean addEdge(int from, int to) {											//O(C*C/64) with bitsets, O(1) amortized otherwise
+		if (from >= component.length || to >= component.length) {
+			return false;
+		}
+		if (reachable(from, to)) {					// Nothing becomes reachable which was not already
+			return true;
+		}
+		int a = component[from];
+		int b = component[to];
+		if (reach != null) {						// Everything which reaches a now also reaches everything b reaches
+			int source = b * words;
+			for (int c = 0; c < componentCount; c++) {
+				int start = c * words;
+				if ((reach[start + (a >>> 6)] & (1L << (a & 63))) != 0) {
+					for (int i = 0; i < words; i++) {
+						reach[start + i] |= reach[source + i];
+					}
+				}
+			}
+			return true;
+		}
+		int count = addedCount;
+		if (count == MAX_ADDED_EDGES) {
+			return false;
+		}
+		if (addedFrom == null) {
+			addedFrom = new int[MAX_ADDED_EDGES];
+			addedTo = new int[MAX_ADDED_EDGES];
+		}
+		addedFrom[count] = a;
+		addedTo[count] = b;
+		addedCount = count + 1;
+		return true;
+	}
+
+	// Tarjan's algorithm with an explicit stack of Nodes and the position in their list of Edges
+	private void findComponents() {														//O(V+E)
+		int size = graph.size();
+		component = new int[size];
+		int[] index = new int[size];				// The order in which the Nodes were discovered, -1 if not yet
+		int[] low = new int[size];					// The lowest index reachable from the subtree of a Node
+		int[] sccStack = new int[size];
+		boolean[] onStack = new boolean[size];
+		int[] callNode = new int[size];
+		int[] callEdge = new int[size];
+		for (int v = 0; v < size; v++) {
+			index[v] = -1;
+		}
+		int counter = 0;
+		int sccTop = 0;
+		componentCount = 0;
+		for (int root = 0; root < size; root++) {
+			if (index[root] != -1) {
+				continue;
+			}
+			int callTop = 0;
+			callNode[callTop] = root;
+			callEdge[callTop++] = graph.edgesStart(root);
+			index[root] = low[root] = counter++;
+			sccStack[sccTop++] = root;
+			onStack[root] = true;
+			while (callTop > 0) {
+				int v = callNode[callTop - 1];
+				int e = callEdge[callTop - 1];
+				if (e < graph.edgesEnd(v)) {
+					callEdge[callTop - 1]++;
+					int w = graph.getTarget(e);
+					if (index[w] == -1) {			// Descend into w
+						index[w] = low[w] = counter++;
+						sccStack[sccTop++] = w;
+						onStack[w] = true;
+						callNode[callTop] = w;
+						callEdge[callTop++] = graph.edgesStart(w);
+					}
+					else if (onStack[w] && index[w] < low[v]) {
+						low[v] = index[w];
+					}
+				}
+				else {								// All Edges of v are done, return to its parent
+					callTop--;
+					if (low[v] == index[v]) {		// v is the root of a component, pop it from the stack
+						int w;
+						do {
+							w = sccStack[--sccTop];
+							onStack[w] = false;
+							component[w] = componentCount;
+						} while (w != v);
+						componentCount++;
+					}
+					if (callTop > 0) {
+						int parent = callNode[callTop - 1];
+						if (low[v] < low[parent]) {
+							low[parent] = low[v];
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// The Edges between different components, each pair only once
+	private void buildCondensation() {													//O(V+E)
+		int size = graph.size();
+		int[] nodeStart = new int[componentCount + 1];		// The Nodes grouped per component
+		for (int v = 0; v < size; v++) {
+			nodeStart[component[v] + 1]++;
+		}
+		for (int c = 0; c < componentCount; c++) {
+			nodeStart[c + 1] += nodeStart[c];
+		}
+		int[] nodes = new int[size];
+		int[] position = new int[componentCount];
+		for (int c = 0; c < componentCount; c++) {
+			position[c] = nodeStart[c];
+		}
+		for (int v = 0; v < size; v++) {
+			nodes[position[component[v]]++] = v;
+		}
+		int[] lastSeen = new int[componentCount];			// The last component which added an Edge to this one
+		for (int c = 0; c < componentCount; c++) {
+			lastSeen[c] = -1;
+		}
+		dagOffsets = new int[componentCount + 1];
+		int[] targets = new int[Math.max(graph.edgeCount(), 1)];
+		int count = 0;
+		for (int c = 0; c < componentCount; c++) {
+			dagOffsets[c] = count;
+			for (int i = nodeStart[c]; i < nodeStart[c + 1]; i++) {
+				int v = nodes[i];
+				for (int e = graph.edgesStart(v); e < graph.edgesEnd(v); e++) {
+					int d = component[graph.getTarget(e)];
+					if (d != c && lastSeen[d] != c) {
+						lastSeen[d] = c;
+						targets[count++] = d;
+					}
+				}
+			}
+		}
+		dagOffsets[componentCount] = count;
+		dagTargets = new int[count];
+		for (int i = 0; i < count; i++) {
+			dagTargets[i] = targets[i];
+		}
+	}
+
+	// The bitsets in order of component number, so the bitsets of all successors are done first
+	private void buildBitsets() {														//O(C*E'/64)
+		words = (componentCount + 63) >>> 6;
+		reach = new long[componentCount * words];
+		for (int c = 0; c < componentCount; c++) {
+			int start = c * words;
+			reach[start + (c >>> 6)] |= 1L << (c & 63);
+			for (int e = dagOffsets[c]; e < dagOffsets[c + 1]; e++) {
+				int d = dagTargets[e];
+				int from = d * words;
+				for (int i = 0; i <= (d >>> 6); i++) {		// d only reaches components with a number of at most d
+					reach[start + i] |= reach[from + i];
+				}
+			}
+		}
+	}
+}
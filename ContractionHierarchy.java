@@ -0,0 +1,674 @@
+/* This class is a contraction hierarchy (CH) of a FrozenGraph, a preprocessing step for very fast point-to-point queries.
+ * The Nodes are contracted (taken out of the Graph) one by one, least important first. When a Node v is taken out,
+ * a shortcut u -> w with the weight of u -> v -> w is added for every pair of neighbours unless a witness search
+ * finds another path from u to w which is not longer. The rank of a Node is the moment at which it was contracted.
+ * All Edges and shortcuts are then split in an upward graph (towards a higher rank) and a downward graph.
+ * A query runs Dijkstra upwards from the source and upwards on the reversed downward graph from the target; both
+ * only climb the hierarchy and meet at the highest Node of a shortest path, so only a few hundred Nodes are settled.
+ * The importance of a Node is its edge difference (shortcuts needed minus Edges removed) plus the amount of
+ * neighbours which are already contracted. It is updated lazily: when a Node is taken from the heap its
+ * importance is computed again and it is put back if it is no longer the least important one.
+ * Witness searches are cut off after a few hundred settled Nodes (fifty while only estimating the importance);
+ * a witness which is not found only costs an unnecessary shortcut, never a wrong distance.
+ * Shortcuts remember the Node they skip so that a path can be unpacked into the original Edges.
+ * The queries keep their state in the SearchContext of the calling thread, so several threads can query at once.
+ * A whole table of distances between many sources and targets is computed with buckets (see distanceTable).
+ * Author: Seppe Lampe
+ */
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ContractionHierarchy {
+	private static final int WITNESS_LIMIT = 500;			// The maximum amount of Nodes settled by one witness search
+	private static final int SIMULATION_LIMIT = 50;			// The same while only estimating the importance of a Node
+
+	private FrozenGraph graph;
+	private int[] rank;
+	private int shortcutCount;
+	private int[] upOffsets;				// Upward graph: Edges u -> v with rank[v] > rank[u], stored at u
+	private int[] upTargets;
+	private double[] upWeights;
+	private int[] upMiddle;					// The Node skipped by a shortcut, -1 for an original Edge
+	private int[] downOffsets;				// Downward graph, reversed: Edges u -> v with rank[u] > rank[v], stored at v
+	private int[] downTargets;
+	private double[] downWeights;
+	private int[] downMiddle;
+
+	// The remaining Graph during the construction, every Node has growing lists of outgoing and incoming Edges
+	private int[][] outTargets;
+	private double[][] outWeights;
+	private int[][] outMiddle;
+	private int[] outCount;
+	private int[][] inTargets;
+	private double[][] inWeights;
+	private int[][] inMiddle;
+	private int[] inCount;
+	private boolean[] contracted;
+	private int[] contractedNeighbours;
+	private double[] witnessDistance;
+	private int[] witnessStamp;					// witnessDistance is only valid for the Nodes stamped with witnessRound
+	private int[] targetStamp;					// The Nodes stamped with witnessRound are the ones the witness search looks for
+	private int witnessRound;
+	private IndexedHeap witnessHeap;
+
+	public ContractionHierarchy(FrozenGraph graph) {										//Roughly O(n*log(n)) on road networks
+		int size = graph.size();
+		this.graph = graph;
+		rank = new int[size];
+		shortcutCount = 0;
+		copyGraph();
+		IndexedHeap order = new IndexedHeap(size);
+		for (int v = 0; v < size; v++) {
+			order.push(v, importance(v));
+		}
+		int nextRank = 0;
+		while (!order.isEmpty()) {
+			int v = order.pop();
+			double current = importance(v);
+			if (!order.isEmpty() && current > order.topKey()) {		// The importance grew, v is not the least important Node anymore
+				order.push(v, current);
+				continue;
+			}
+			contract(v, false);
+			contracted[v] = true;
+			rank[v] = nextRank++;
+			for (int i = 0; i < outCount[v]; i++) {
+				contractedNeighbours[outTargets[v][i]]++;
+			}
+			for (int i = 0; i < inCount[v]; i++) {
+				contractedNeighbours[inTargets[v][i]]++;
+			}
+		}
+		splitGraph();
+		outTargets = null;								// The remaining Graph is no longer needed
+		outWeights = null;
+		outMiddle = null;
+		inTargets = null;
+		inWeights = null;
+		inMiddle = null;
+		contracted = null;
+		contractedNeighbours = null;
+		witnessDistance = null;
+		witnessStamp = null;
+		targetStamp = null;
+		witnessHeap = null;
+	}
+
+	// Return the FrozenGraph from which the hierarchy was built
+	public FrozenGraph getGraph() {															//O(1)
+		return graph;
+	}
+
+	// Return the amount of shortcuts which were added
+	public int getShortcutCount() {															//O(1)
+		return shortcutCount;
+	}
+
+	// Return the rank of a Node, the moment at which it was contracted
+	public int getRank(int id) {															//O(1)
+		return rank[id];
+	}
+
+	// Return the shortest distance between two Nodes, -1 if there is no path
+	public double distance(int source, int target) {										//Usually a few hundred Nodes are settled
+		SearchContext c = graph.context();
+		int meeting = search(source, target, c);
+		if (meeting == -1) {
+			return -1;
+		}
+		return c.forwardDistance[meeting] + c.backwardDistance[meeting];
+	}
+
+	// Search a shortest path between two Nodes, the result only contains the Nodes of the path
+	public ShortestPath shortestPath(int source, int target) {
+		SearchContext c = graph.context();
+		int meeting = search(source, target, c);
+		if (meeting == -1) {
+			return c.toPath(graph, source, 0);
+		}
+		c.path[0] = source;
+		c.pathDistance[0] = 0.0;
+		c.position[source] = 0;
+		int length = 1;
+		int hopCount = 0;										// The top Nodes of the upward half, from the meeting Node down to the source
+		for (int v = meeting; v != source; v = c.forwardPrevious[v]) {
+			c.hops[hopCount++] = v;
+		}
+		for (int i = hopCount - 1; i >= 0; i--) {
+			length = unpack(i == hopCount - 1 ? source : c.hops[i + 1], c.hops[i], c, length);
+		}
+		for (int v = meeting; v != target; v = c.backwardPrevious[v]) {
+			length = unpack(v, c.backwardPrevious[v], c, length);
+		}
+		return c.toPath(graph, source, length);
+	}
+
+	/* Return the distances from every source to every target: table[i][j] is the distance from sources[i] to
+	 * targets[j], -1 if there is no path or if one of both ids is -1. The highest Node of a shortest path is
+	 * settled by the upward searches of both ends, so first every target runs its upward search backwards and
+	 * leaves its distance in a bucket at every Node it settles. Then every source runs its upward search and only
+	 * scans the buckets of the Nodes it settles. This costs S + T small searches instead of S*T queries.
+	 * Both rounds of searches run in parallel on the common fork-join pool, each thread in its own SearchContext. */
+	public double[][] distanceTable(int[] sources, int[] targets) {					//O((S+T)*search + bucket entries scanned)
+		int size = graph.size();
+		int[][] spaceNodes = new int[targets.length][];			// The Nodes settled by the backward search of each target
+		double[][] spaceDistances = new double[targets.length][];
+		ForkJoinPool.commonPool().invoke(new SpaceTask(targets, spaceNodes, spaceDistances, 0, targets.length));
+		int[] bucketOffsets = new int[size + 1];				// The bucket of Node v is at bucketOffsets[v] ... bucketOffsets[v + 1] - 1
+		for (int j = 0; j < targets.length; j++) {
+			for (int i = 0; i < spaceNodes[j].length; i++) {
+				bucketOffsets[spaceNodes[j][i] + 1]++;
+			}
+		}
+		for (int v = 0; v < size; v++) {
+			bucketOffsets[v + 1] += bucketOffsets[v];
+		}
+		int[] position = new int[size];
+		for (int v = 0; v < size; v++) {
+			position[v] = bucketOffsets[v];
+		}
+		int[] bucketColumns = new int[bucketOffsets[size]];
+		double[] bucketDistances = new double[bucketOffsets[size]];
+		for (int j = 0; j < targets.length; j++) {
+			for (int i = 0; i < spaceNodes[j].length; i++) {
+				int slot = position[spaceNodes[j][i]]++;
+				bucketColumns[slot] = j;
+				bucketDistances[slot] = spaceDistances[j][i];
+			}
+		}
+		double[][] table = new double[sources.length][targets.length];
+		ForkJoinPool.commonPool().invoke(new RowTask(sources, table, bucketOffsets, bucketColumns, bucketDistances, 0, sources.length));
+		return table;
+	}
+
+	/* Dijkstra upwards from a Node until the heap is empty, forwards on the upward graph or backwards on the
+	 * downward graph. A Node which can be reached shorter from a higher Node than its own distance is stalled:
+	 * it is not on a shortest path which climbs to it, so it is neither kept nor expanded.
+	 * The settled Nodes and their distances are left in c.path and c.pathDistance, their amount is returned. */
+	private int upwardSearch(int start, boolean forward, SearchContext c) {
+		int[] offsets = forward ? upOffsets : downOffsets;
+		int[] targets = forward ? upTargets : downTargets;
+		double[] weights = forward ? upWeights : downWeights;
+		int[] stallOffsets = forward ? downOffsets : upOffsets;
+		int[] stallTargets = forward ? downTargets : upTargets;
+		double[] stallWeights = forward ? downWeights : upWeights;
+		c.begin();
+		IndexedHeap heap = c.forwardHeap;
+		c.setForward(start, 0.0, -1);
+		heap.push(start, 0.0);
+		int count = 0;
+		while (!heap.isEmpty()) {
+			int u = heap.pop();
+			double distance = c.forwardDistance[u];
+			boolean stalled = false;
+			for (int e = stallOffsets[u]; e < stallOffsets[u + 1] && !stalled; e++) {
+				stalled = c.forward(stallTargets[e]) + stallWeights[e] < distance;
+			}
+			if (stalled) {
+				continue;
+			}
+			c.path[count] = u;
+			c.pathDistance[count++] = distance;
+			for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+				int v = targets[e];
+				if (distance + weights[e] < c.forward(v)) {
+					c.setForward(v, distance + weights[e], u);
+					heap.pushOrDecrease(v, distance + weights[e]);
+				}
+			}
+		}
+		return count;
+	}
+
+	// Runs the backward searches of the targets from ... to - 1 and keeps the Nodes they settle
+	private class SpaceTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int[] targets;
+		private int[][] spaceNodes;
+		private double[][] spaceDistances;
+		private int from;
+		private int to;
+
+		public SpaceTask(int[] targets, int[][] spaceNodes, double[][] spaceDistances, int from, int to) {
+			this.targets = targets;
+			this.spaceNodes = spaceNodes;
+			this.spaceDistances = spaceDistances;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new SpaceTask(targets, spaceNodes, spaceDistances, from, middle), new SpaceTask(targets, spaceNodes, spaceDistances, middle, to));
+				return;
+			}
+			for (int j = from; j < to; j++) {
+				SearchContext c = graph.context();
+				int count = targets[j] == -1 ? 0 : upwardSearch(targets[j], false, c);
+				spaceNodes[j] = new int[count];
+				spaceDistances[j] = new double[count];
+				for (int i = 0; i < count; i++) {
+					spaceNodes[j][i] = c.path[i];
+					spaceDistances[j][i] = c.pathDistance[i];
+				}
+			}
+		}
+	}
+
+	// Runs the forward searches of the sources from ... to - 1 and fills their rows from the buckets
+	private class RowTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int[] sources;
+		private double[][] table;
+		private int[] bucketOffsets;
+		private int[] bucketColumns;
+		private double[] bucketDistances;
+		private int from;
+		private int to;
+
+		public RowTask(int[] sources, double[][] table, int[] bucketOffsets, int[] bucketColumns, double[] bucketDistances, int from, int to) {
+			this.sources = sources;
+			this.table = table;
+			this.bucketOffsets = bucketOffsets;
+			this.bucketColumns = bucketColumns;
+			this.bucketDistances = bucketDistances;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RowTask(sources, table, bucketOffsets, bucketColumns, bucketDistances, from, middle),
+						new RowTask(sources, table, bucketOffsets, bucketColumns, bucketDistances, middle, to));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				double[] row = table[i];
+				for (int j = 0; j < row.length; j++) {
+					row[j] = Double.POSITIVE_INFINITY;
+				}
+				if (sources[i] != -1) {
+					SearchContext c = graph.context();
+					int count = upwardSearch(sources[i], true, c);
+					for (int k = 0; k < count; k++) {
+						int u = c.path[k];
+						for (int b = bucketOffsets[u]; b < bucketOffsets[u + 1]; b++) {
+							double distance = c.pathDistance[k] + bucketDistances[b];
+							if (distance < row[bucketColumns[b]]) {
+								row[bucketColumns[b]] = distance;
+							}
+						}
+					}
+				}
+				for (int j = 0; j < row.length; j++) {
+					if (row[j] == Double.POSITIVE_INFINITY) {
+						row[j] = -1;
+					}
+				}
+			}
+		}
+	}
+
+	/* Compare the hierarchy with plain Dijkstra: for a few random sources a full ShortestPathTree is built
+	   and the distance to every Node is asked to the hierarchy. Returns the amount of differences. */
+	public int check(int samples, long seed) {												//O(samples*V*query)
+		Random random = new Random(seed);
+		int differences = 0;
+		int size = graph.size();
+		for (int i = 0; i < samples && size > 0; i++) {
+			int source = random.nextInt(size);
+			ShortestPathTree tree = graph.shortestPathTree(source);
+			for (int target = 0; target < size; target++) {
+				if (Math.abs(distance(source, target) - tree.distanceTo(target)) > 1e-9) {
+					differences++;
+				}
+			}
+		}
+		return differences;
+	}
+
+	/* Dijkstra upwards from both ends. A direction stops once its smallest key reaches the best meeting distance,
+	 * because it can only climb further and every Edge has a weight of at least 0. */
+	private int search(int source, int target, SearchContext c) {			// Returns the meeting Node, -1 if there is no path
+		c.begin();
+		IndexedHeap forwardHeap = c.forwardHeap;
+		IndexedHeap backwardHeap = c.backwardHeap;
+		c.setForward(source, 0.0, -1);
+		forwardHeap.push(source, 0.0);
+		c.setBackward(target, 0.0, -1);
+		backwardHeap.push(target, 0.0);
+		double best = Double.POSITIVE_INFINITY;
+		int meeting = -1;
+		while (true) {
+			boolean forward = !forwardHeap.isEmpty() && forwardHeap.topKey() < best;
+			boolean backward = !backwardHeap.isEmpty() && backwardHeap.topKey() < best;
+			if (!forward && !backward) {
+				break;
+			}
+			if (forward && (!backward || forwardHeap.topKey() <= backwardHeap.topKey())) {
+				int u = forwardHeap.pop();
+				double distance = c.forwardDistance[u];
+				if (distance + c.backward(u) < best) {
+					best = distance + c.backward(u);
+					meeting = u;
+				}
+				for (int e = upOffsets[u]; e < upOffsets[u + 1]; e++) {
+					int v = upTargets[e];
+					if (distance + upWeights[e] < c.forward(v)) {
+						c.setForward(v, distance + upWeights[e], u);
+						forwardHeap.pushOrDecrease(v, distance + upWeights[e]);
+					}
+				}
+			}
+			else {
+				int u = backwardHeap.pop();
+				double distance = c.backwardDistance[u];
+				if (c.forward(u) + distance < best) {
+					best = c.forward(u) + distance;
+					meeting = u;
+				}
+				for (int e = downOffsets[u]; e < downOffsets[u + 1]; e++) {
+					int v = downTargets[e];
+					if (distance + downWeights[e] < c.backward(v)) {
+						c.setBackward(v, distance + downWeights[e], u);
+						backwardHeap.pushOrDecrease(v, distance + downWeights[e]);
+					}
+				}
+			}
+		}
+		return meeting;
+	}
+
+	/* Replace the Edge or shortcut from -> to by the original Edges and add their ends to the path in the context.
+	 * A shortcut from -> to which skips m stands for from -> m and m -> to, these may be shortcuts as well.
+	 * Returns the new length of the path. */
+	private int unpack(int from, int to, SearchContext c, int length) {
+		int[] stack = c.stack;
+		int top = 0;
+		stack[top++] = from;
+		stack[top++] = to;
+		while (top > 0) {
+			int b = stack[--top];
+			int a = stack[--top];
+			int middle = edgeMiddle(a, b);
+			if (middle == -1 && c.position[b] != -1) {		// The path returns to a Node, cut the cycle of weight 0
+				while (c.path[length - 1] != b) {
+					c.position[c.path[--length]] = -1;
+				}
+			}
+			else if (middle == -1) {						// An original Edge
+				c.pathDistance[length] = c.pathDistance[length - 1] + edgeWeight(a, b);
+				c.position[b] = length;
+				c.path[length++] = b;
+			}
+			else {											// First from -> middle, then middle -> to
+				stack[top++] = middle;
+				stack[top++] = b;
+				stack[top++] = a;
+				stack[top++] = middle;
+			}
+		}
+		return length;
+	}
+
+	// Return the position of the Edge a -> b in the upward graph (positive) or in the downward graph (-position - 1)
+	private int findEdge(int a, int b) {
+		if (rank[b] > rank[a]) {
+			for (int e = upOffsets[a]; e < upOffsets[a + 1]; e++) {
+				if (upTargets[e] == b) {
+					return e;
+				}
+			}
+		}
+		else {
+			for (int e = downOffsets[b]; e < downOffsets[b + 1]; e++) {
+				if (downTargets[e] == a) {
+					return -e - 1;
+				}
+			}
+		}
+		return Integer.MIN_VALUE;
+	}
+
+	private int edgeMiddle(int a, int b) {
+		int e = findEdge(a, b);
+		return e >= 0 ? upMiddle[e] : downMiddle[-e - 1];
+	}
+
+	private double edgeWeight(int a, int b) {
+		int e = findEdge(a, b);
+		return e >= 0 ? upWeights[e] : downWeights[-e - 1];
+	}
+
+	// Copy the FrozenGraph into growing lists, the only lists which change during the contraction
+	private void copyGraph() {
+		int size = graph.size();
+		outTargets = new int[size][];
+		outWeights = new double[size][];
+		outMiddle = new int[size][];
+		outCount = new int[size];
+		inTargets = new int[size][];
+		inWeights = new double[size][];
+		inMiddle = new int[size][];
+		inCount = new int[size];
+		contracted = new boolean[size];
+		contractedNeighbours = new int[size];
+		witnessRound = 0;
+		witnessDistance = new double[size];
+		witnessStamp = new int[size];
+		targetStamp = new int[size];
+		witnessHeap = new IndexedHeap(size);
+		for (int v = 0; v < size; v++) {
+			outTargets[v] = new int[4];
+			outWeights[v] = new double[4];
+			outMiddle[v] = new int[4];
+			inTargets[v] = new int[4];
+			inWeights[v] = new double[4];
+			inMiddle[v] = new int[4];
+		}
+		for (int u = 0; u < size; u++) {
+			for (int e = graph.edgesStart(u); e < graph.edgesEnd(u); e++) {
+				if (graph.getTarget(e) != u) {				// A loop is never part of a shortest path
+					addEdge(u, graph.getTarget(e), graph.getWeight(e), -1);
+				}
+			}
+		}
+	}
+
+	// Add the Edge u -> w to the remaining Graph, or lower its weight if it is already there
+	private void addEdge(int u, int w, double weight, int middle) {
+		for (int i = 0; i < outCount[u]; i++) {
+			if (outTargets[u][i] == w) {
+				if (weight < outWeights[u][i]) {
+					outWeights[u][i] = weight;
+					outMiddle[u][i] = middle;
+					for (int j = 0; j < inCount[w]; j++) {
+						if (inTargets[w][j] == u) {
+							inWeights[w][j] = weight;
+							inMiddle[w][j] = middle;
+						}
+					}
+				}
+				return;
+			}
+		}
+		if (outCount[u] == outTargets[u].length) {
+			outTargets[u] = grow(outTargets[u]);
+			outWeights[u] = grow(outWeights[u]);
+			outMiddle[u] = grow(outMiddle[u]);
+		}
+		outTargets[u][outCount[u]] = w;
+		outWeights[u][outCount[u]] = weight;
+		outMiddle[u][outCount[u]++] = middle;
+		if (inCount[w] == inTargets[w].length) {
+			inTargets[w] = grow(inTargets[w]);
+			inWeights[w] = grow(inWeights[w]);
+			inMiddle[w] = grow(inMiddle[w]);
+		}
+		inTargets[w][inCount[w]] = u;
+		inWeights[w][inCount[w]] = weight;
+		inMiddle[w][inCount[w]++] = middle;
+	}
+
+	// The importance of a Node: shortcuts it would need, minus the Edges it would remove, plus its contracted neighbours
+	private double importance(int v) {
+		int removed = 0;
+		for (int i = 0; i < outCount[v]; i++) {
+			if (!contracted[outTargets[v][i]]) {
+				removed++;
+			}
+		}
+		for (int i = 0; i < inCount[v]; i++) {
+			if (!contracted[inTargets[v][i]]) {
+				removed++;
+			}
+		}
+		return contract(v, true) - removed + contractedNeighbours[v];
+	}
+
+	/* Take Node v out of the remaining Graph. For every neighbour u -> v a witness search looks for paths from u
+	 * which avoid v, a shortcut u -> w is only needed if no such path is as short as u -> v -> w.
+	 * With simulate set the shortcuts are only counted. Returns the amount of (needed) shortcuts. */
+	private int contract(int v, boolean simulate) {
+		int shortcuts = 0;
+		for (int i = 0; i < inCount[v]; i++) {
+			int u = inTargets[v][i];
+			if (contracted[u]) {
+				continue;
+			}
+			double toV = inWeights[v][i];
+			double longest = -1;
+			int targets = 0;
+			witnessRound++;
+			for (int j = 0; j < outCount[v]; j++) {
+				int w = outTargets[v][j];
+				if (!contracted[w] && w != u) {
+					targetStamp[w] = witnessRound;
+					targets++;
+					if (toV + outWeights[v][j] > longest) {
+						longest = toV + outWeights[v][j];
+					}
+				}
+			}
+			if (targets == 0) {
+				continue;
+			}
+			witnessSearch(u, v, longest, targets, simulate ? SIMULATION_LIMIT : WITNESS_LIMIT);
+			for (int j = 0; j < outCount[v]; j++) {
+				int w = outTargets[v][j];
+				if (contracted[w] || w == u) {
+					continue;
+				}
+				double via = toV + outWeights[v][j];
+				if (witnessStamp[w] != witnessRound || witnessDistance[w] > via) {
+					shortcuts++;
+					if (!simulate) {
+						addEdge(u, w, via, v);
+						shortcutCount++;
+					}
+				}
+			}
+		}
+		return shortcuts;
+	}
+
+	/* Dijkstra from u in the remaining Graph without Node v, limited in distance and in the amount of settled Nodes.
+	   It also stops once all targets (the Nodes stamped in targetStamp) are settled. */
+	private void witnessSearch(int u, int v, double limit, int targets, int settleLimit) {
+		int stamp = witnessRound;
+		witnessHeap.clear();
+		witnessStamp[u] = stamp;
+		witnessDistance[u] = 0.0;
+		witnessHeap.push(u, 0.0);
+		int settled = 0;
+		while (!witnessHeap.isEmpty() && witnessHeap.topKey() <= limit && settled < settleLimit && targets > 0) {
+			int x = witnessHeap.pop();
+			settled++;
+			if (targetStamp[x] == stamp) {
+				targets--;
+			}
+			for (int i = 0; i < outCount[x]; i++) {
+				int y = outTargets[x][i];
+				if (contracted[y] || y == v) {
+					continue;
+				}
+				double newDistance = witnessDistance[x] + outWeights[x][i];
+				if (witnessStamp[y] != stamp || newDistance < witnessDistance[y]) {
+					witnessStamp[y] = stamp;
+					witnessDistance[y] = newDistance;
+					witnessHeap.pushOrDecrease(y, newDistance);
+				}
+			}
+		}
+	}
+
+	// Split all Edges and shortcuts in the upward and the (reversed) downward graph, both in CSR form
+	private void splitGraph() {
+		int size = graph.size();
+		upOffsets = new int[size + 1];
+		downOffsets = new int[size + 1];
+		for (int u = 0; u < size; u++) {
+			for (int i = 0; i < outCount[u]; i++) {
+				int w = outTargets[u][i];
+				if (rank[w] > rank[u]) {
+					upOffsets[u + 1]++;
+				}
+				else {
+					downOffsets[w + 1]++;
+				}
+			}
+		}
+		for (int v = 0; v < size; v++) {
+			upOffsets[v + 1] += upOffsets[v];
+			downOffsets[v + 1] += downOffsets[v];
+		}
+		upTargets = new int[upOffsets[size]];
+		upWeights = new double[upOffsets[size]];
+		upMiddle = new int[upOffsets[size]];
+		downTargets = new int[downOffsets[size]];
+		downWeights = new double[downOffsets[size]];
+		downMiddle = new int[downOffsets[size]];
+		int[] upPosition = new int[size];
+		int[] downPosition = new int[size];
+		for (int v = 0; v < size; v++) {
+			upPosition[v] = upOffsets[v];
+			downPosition[v] = downOffsets[v];
+		}
+		for (int u = 0; u < size; u++) {
+			for (int i = 0; i < outCount[u]; i++) {
+				int w = outTargets[u][i];
+				if (rank[w] > rank[u]) {
+					int e = upPosition[u]++;
+					upTargets[e] = w;
+					upWeights[e] = outWeights[u][i];
+					upMiddle[e] = outMiddle[u][i];
+				}
+				else {
+					int e = downPosition[w]++;
+					downTargets[e] = u;
+					downWeights[e] = outWeights[u][i];
+					downMiddle[e] = outMiddle[u][i];
+				}
+			}
+		}
+	}
+
+	private int[] grow(int[] array) {
+		int[] larger = new int[array.length * 2];
+		for (int i = 0; i < array.length; i++) {
+			larger[i] = array[i];
+		}
+		return larger;
+	}
+
+	private double[] grow(double[] array) {
+		double[] larger = new double[array.length * 2];
+		for (int i = 0; i < array.length; i++) {
+			larger[i] = array[i];
+		}
+		return larger;
+	}
+}
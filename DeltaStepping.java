@@ -0,0 +1,343 @@
+/* This class computes single-source shortest paths on a FrozenGraph with all cores at once (delta-stepping).
+ * Tentative distances are kept in buckets of width delta. The lowest non-empty bucket is emptied in phases:
+ * all its Nodes relax their light Edges (weight <= delta) in parallel, which may put Nodes back into the same
+ * bucket, until the bucket stays empty. Then every Node that was removed from it relaxes its heavy Edges once.
+ * Inside a phase the Nodes are split over fork-join tasks; a distance is lowered with compare-and-set so the
+ * tasks never wait for each other. Between phases one thread moves the changed Nodes to their new bucket.
+ * Delta trades work for parallelism: a small delta is close to Dijkstra, a large delta to Bellman-Ford.
+ * When all distances are known the tree is finished in parallel as well: every Node picks an incoming Edge
+ * which is tight (distance of its start plus its weight is exactly the distance of the Node).
+ * Author: Seppe Lampe
+ */
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class DeltaStepping {
+	private static final int TASK_SIZE = 256;				// The amount of Nodes handled by one task without splitting further
+
+	private FrozenGraph graph;
+	private FrozenGraph reverseGraph;
+	private double delta;
+	private ForkJoinPool pool;
+
+	// The state of one run
+	private AtomicLongArray distance;			// The bits of the distances (doubleToLongBits), which compare like the doubles themselves
+	private int[] pendingBucket;				// The bucket in which a Node is waiting, -1 if it is not waiting
+	private int[][] buckets;
+	private int[] bucketSize;
+	private int[] changed;						// The Nodes whose distance was lowered during the current phase
+	private AtomicInteger changedCount;
+
+	public DeltaStepping(FrozenGraph graph, double delta, ForkJoinPool pool) {
+		this.graph = graph;
+		this.reverseGraph = graph.reverse();
+		this.delta = delta;
+		this.pool = pool;
+	}
+
+	// Uses the shared fork-join pool and the average Edge weight as delta
+	public DeltaStepping(FrozenGraph graph) {
+		this(graph, averageWeight(graph), ForkJoinPool.commonPool());
+	}
+
+	// Return the width of the buckets
+	public double getDelta() {																//O(1)
+		return delta;
+	}
+
+	// Build the tree of shortest paths from a Node to every other Node
+	public synchronized ShortestPathTree shortestPathTree(int source) {						//O((V+E)*log(V)/cores) on most graphs
+		int size = graph.size();
+		distance = new AtomicLongArray(size);
+		pendingBucket = new int[size];
+		int[] removed = new int[size];				// The Nodes removed from the current bucket
+		int[] removedFrom = new int[size];			// The last bucket from which a Node was removed, so it is listed only once
+		int[] frontier = new int[size];
+		long infinity = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+		for (int v = 0; v < size; v++) {
+			distance.set(v, infinity);
+			pendingBucket[v] = -1;
+			removedFrom[v] = -1;
+		}
+		buckets = new int[16][];
+		bucketSize = new int[16];
+		changed = new int[Math.max(graph.edgeCount(), 1)];
+		changedCount = new AtomicInteger();
+
+		distance.set(source, Double.doubleToLongBits(0.0));
+		addToBucket(source, 0);
+		for (int current = 0; current < buckets.length; current++) {
+			while (bucketSize[current] > 0) {			// A heavy Edge only refills this bucket through rounding
+				int removedCount = 0;
+				while (bucketSize[current] > 0) {
+					int frontierSize = 0;				// Take the Nodes which are still waiting in this bucket
+					for (int i = 0; i < bucketSize[current]; i++) {
+						int v = buckets[current][i];
+						if (pendingBucket[v] == current) {
+							pendingBucket[v] = -1;
+							frontier[frontierSize++] = v;
+							if (removedFrom[v] != current) {
+								removedFrom[v] = current;
+								removed[removedCount++] = v;
+							}
+						}
+					}
+					bucketSize[current] = 0;
+					relaxAll(frontier, frontierSize, true);
+				}
+				relaxAll(removed, removedCount, false);
+			}
+		}
+
+		ShortestPathTree tree = new ShortestPathTree(graph, source);
+		for (int v = 0; v < size; v++) {
+			tree.distance[v] = Double.longBitsToDouble(distance.get(v));
+		}
+		pool.invoke(new PredecessorTask(tree, 0, size));
+		resolveZeroWeightPredecessors(tree);
+		sortSettled(tree);
+		distance = null;
+		pendingBucket = null;
+		buckets = null;
+		bucketSize = null;
+		changed = null;
+		return tree;
+	}
+
+	// Relax the light (or heavy) Edges of some Nodes in parallel, then move the changed Nodes to their bucket
+	private void relaxAll(int[] nodes, int count, boolean light) {
+		if (count == 0) {
+			return;
+		}
+		changedCount.set(0);
+		pool.invoke(new RelaxTask(nodes, 0, count, light));
+		int total = changedCount.get();
+		for (int i = 0; i < total; i++) {
+			int v = changed[i];
+			int bucket = (int) (Double.longBitsToDouble(distance.get(v)) / delta);
+			if (pendingBucket[v] != bucket) {			// Not yet waiting in the bucket of its new distance
+				addToBucket(v, bucket);
+			}
+		}
+	}
+
+	private void addToBucket(int v, int bucket) {
+		if (bucket >= buckets.length) {
+			int length = buckets.length;
+			while (length <= bucket) {
+				length *= 2;
+			}
+			int[][] moreBuckets = new int[length][];
+			int[] moreSizes = new int[length];
+			for (int i = 0; i < buckets.length; i++) {
+				moreBuckets[i] = buckets[i];
+				moreSizes[i] = bucketSize[i];
+			}
+			buckets = moreBuckets;
+			bucketSize = moreSizes;
+		}
+		if (buckets[bucket] == null) {
+			buckets[bucket] = new int[8];
+		}
+		else if (bucketSize[bucket] == buckets[bucket].length) {
+			int[] larger = new int[bucketSize[bucket] * 2];
+			for (int i = 0; i < bucketSize[bucket]; i++) {
+				larger[i] = buckets[bucket][i];
+			}
+			buckets[bucket] = larger;
+		}
+		buckets[bucket][bucketSize[bucket]++] = v;
+		pendingBucket[v] = bucket;
+	}
+
+	// Relaxes the Edges of a range of Nodes, splitting the range over several tasks when it is large
+	private class RelaxTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int[] nodes;
+		private int from;
+		private int to;
+		private boolean light;
+
+		public RelaxTask(int[] nodes, int from, int to, boolean light) {
+			this.nodes = nodes;
+			this.from = from;
+			this.to = to;
+			this.light = light;
+		}
+
+		protected void compute() {
+			if (to - from > TASK_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RelaxTask(nodes, from, middle, light), new RelaxTask(nodes, middle, to, light));
+				return;
+			}
+			int[] local = new int[64];				// Collect the changed Nodes locally, then reserve room for all at once
+			int localCount = 0;
+			for (int i = from; i < to; i++) {
+				int u = nodes[i];
+				double start = Double.longBitsToDouble(distance.get(u));
+				for (int e = graph.edgesStart(u); e < graph.edgesEnd(u); e++) {
+					double weight = graph.getWeight(e);
+					if ((weight <= delta) != light) {
+						continue;
+					}
+					int v = graph.getTarget(e);
+					long newBits = Double.doubleToLongBits(start + weight);
+					long oldBits = distance.get(v);
+					while (newBits < oldBits) {
+						if (distance.compareAndSet(v, oldBits, newBits)) {
+							if (localCount == local.length) {
+								int[] larger = new int[localCount * 2];
+								for (int j = 0; j < localCount; j++) {
+									larger[j] = local[j];
+								}
+								local = larger;
+							}
+							local[localCount++] = v;
+							break;
+						}
+						oldBits = distance.get(v);
+					}
+				}
+			}
+			int offset = changedCount.getAndAdd(localCount);
+			for (int j = 0; j < localCount; j++) {
+				changed[offset + j] = local[j];
+			}
+		}
+	}
+
+	/* Every reachable Node except the source picks an incoming tight Edge with a positive weight, its start is strictly
+	   closer to the source so following the previous Nodes always ends at the source. Nodes which are only reached over
+	   tight Edges of weight 0 are marked with -2 and handled afterwards. */
+	private class PredecessorTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private ShortestPathTree tree;
+		private int from;
+		private int to;
+
+		public PredecessorTask(ShortestPathTree tree, int from, int to) {
+			this.tree = tree;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > TASK_SIZE * 16) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new PredecessorTask(tree, from, middle), new PredecessorTask(tree, middle, to));
+				return;
+			}
+			for (int v = from; v < to; v++) {
+				tree.previous[v] = -1;
+				if (v == tree.source || tree.distance[v] == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				tree.previous[v] = -2;
+				for (int e = reverseGraph.edgesStart(v); e < reverseGraph.edgesEnd(v); e++) {
+					int u = reverseGraph.getTarget(e);
+					if (reverseGraph.getWeight(e) > 0 && tree.distance[u] + reverseGraph.getWeight(e) == tree.distance[v]) {
+						tree.previous[v] = u;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	// Give the Nodes marked with -2 a previous Node over a tight Edge of weight 0 whose start already has one
+	private void resolveZeroWeightPredecessors(ShortestPathTree tree) {
+		boolean progress = true;
+		while (progress) {
+			progress = false;
+			for (int v = 0; v < tree.previous.length; v++) {
+				if (tree.previous[v] != -2) {
+					continue;
+				}
+				for (int e = reverseGraph.edgesStart(v); e < reverseGraph.edgesEnd(v); e++) {
+					int u = reverseGraph.getTarget(e);
+					if (tree.previous[u] != -2 && tree.distance[u] != Double.POSITIVE_INFINITY
+							&& tree.distance[u] + reverseGraph.getWeight(e) == tree.distance[v]) {
+						tree.previous[v] = u;
+						progress = true;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	// Fill the settled list of the tree with the reachable Nodes in order of distance: first per bucket, then within each bucket
+	private void sortSettled(ShortestPathTree tree) {
+		int size = graph.size();
+		int bucketCount = 1;
+		for (int v = 0; v < size; v++) {
+			if (tree.distance[v] != Double.POSITIVE_INFINITY) {
+				int bucket = (int) (tree.distance[v] / delta);
+				if (bucket + 1 > bucketCount) {
+					bucketCount = bucket + 1;
+				}
+			}
+		}
+		int[] start = new int[bucketCount + 1];
+		for (int v = 0; v < size; v++) {
+			if (tree.distance[v] != Double.POSITIVE_INFINITY) {
+				start[(int) (tree.distance[v] / delta) + 1]++;
+			}
+		}
+		for (int b = 0; b < bucketCount; b++) {
+			start[b + 1] += start[b];
+		}
+		int[] position = new int[bucketCount];
+		for (int b = 0; b < bucketCount; b++) {
+			position[b] = start[b];
+		}
+		for (int v = 0; v < size; v++) {
+			if (tree.distance[v] != Double.POSITIVE_INFINITY) {
+				tree.settled[position[(int) (tree.distance[v] / delta)]++] = v;
+			}
+		}
+		tree.settledCount = start[bucketCount];
+		int[] buffer = new int[tree.settledCount];
+		for (int b = 0; b < bucketCount; b++) {
+			sortByDistance(tree.settled, buffer, start[b], start[b + 1], tree.distance);
+		}
+	}
+
+	// Merge sort of a range of ids on their distance
+	private void sortByDistance(int[] ids, int[] buffer, int from, int to, double[] distance) {
+		if (to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sortByDistance(ids, buffer, from, middle, distance);
+		sortByDistance(ids, buffer, middle, to, distance);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || (left < middle && distance[ids[left]] <= distance[ids[right]])) {
+				buffer[i] = ids[left++];
+			}
+			else {
+				buffer[i] = ids[right++];
+			}
+		}
+		for (int i = from; i < to; i++) {
+			ids[i] = buffer[i];
+		}
+	}
+
+	// The average weight of the Edges, a reasonable bucket width for road networks
+	private static double averageWeight(FrozenGraph graph) {
+		double total = 0;
+		for (int e = 0; e < graph.edgeCount(); e++) {
+			total += graph.getWeight(e);
+		}
+		if (total == 0) {
+			return 1.0;
+		}
+		return total / graph.edgeCount();
+	}
+}
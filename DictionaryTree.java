@@ -8,7 +8,7 @@
  * Author: Seppe Lampe
  */
 public class DictionaryTree{
-	private RedBlackTree data;
+	private Tree data;
 	
 	public class DictionaryPair implements Comparable
 	{
@@ -45,7 +45,13 @@ public class DictionaryTree{
 	
 	public DictionaryTree()
 	{
-		data = new RedBlackTree();
+		this(new RedBlackTree());
+	}
+	
+	// A DictionaryTree which stores its DictionaryPairs in a given (empty) Tree, for example a BPlusTree
+	public DictionaryTree(Tree data)
+	{
+		this.data = data;
 	}
 	
 	// Adds a key and value to the Dictionary
@@ -54,6 +60,22 @@ public class DictionaryTree{
 		data.insert(new DictionaryPair(key, value));
 	}
 	
+	// Adds a key larger than every key in the Dictionary, e.g. a new id, see Tree.append
+	public void append(Comparable key, Comparable value)								//O(log(n))
+	{
+		data.append(new DictionaryPair(key, value));
+	}
+	
+	// Replaces the contents of the Dictionary by the keys and values at the same positions, see Tree.build
+	public void build(Comparable[] keys, Comparable[] values)							//O(n) if the keys are sorted, O(n log(n)) otherwise
+	{
+		Comparable[] pairs = new Comparable[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			pairs[i] = new DictionaryPair(keys[i], values[i]);
+		}
+		data.build(pairs);
+	}
+	
 	// Searches for a DictionaryPair based on a certain key, returns the DictionaryPair.
 	public DictionaryPair find(Comparable key) {										//O(log(n))
 		return (DictionaryPair)data.find(new DictionaryPair(key, 0));
@@ -81,7 +103,47 @@ public class DictionaryTree{
 		}
 	}
 	
+	// Removes a key and its value from the Dictionary, returns the value or null if the key is not in it.
+	public Comparable remove(Comparable key) {											//O(log(n))
+		DictionaryPair pair = this.find(key);
+		if(pair == null) {
+			return null;
+		}
+		data.delete(pair);
+		return pair.getValue();
+	}
+	
+	// Returns the DictionaryPairs with a key between lowKey and highKey (both included) in a Vector, smallest key first.
+	public Vector range(Comparable lowKey, Comparable highKey) {						//O(log(n) + k), k keys in the range
+		return data.range(new DictionaryPair(lowKey, 0), new DictionaryPair(highKey, 0));
+	}
+	
+	// Performs an action on/at each Node with a key between lowKey and highKey (both included), in order.
+	public void traverseRange(Comparable lowKey, Comparable highKey, TreeAction action) {	//O(log(n) + k), k keys in the range
+		data.traverseRange(new DictionaryPair(lowKey, 0), new DictionaryPair(highKey, 0), action);
+	}
+	
+	// Returns the DictionaryPair with the largest key smaller than or equal to a key, null if there is none.
+	public DictionaryPair floor(Comparable key) {										//O(log(n))
+		return (DictionaryPair)data.floor(new DictionaryPair(key, 0));
+	}
+	
+	// Returns the DictionaryPair with the smallest key larger than or equal to a key, null if there is none.
+	public DictionaryPair ceiling(Comparable key) {										//O(log(n))
+		return (DictionaryPair)data.ceiling(new DictionaryPair(key, 0));
+	}
+	
+	// Returns the DictionaryPair with the largest key strictly smaller than a key, null if there is none.
+	public DictionaryPair lower(Comparable key) {										//O(log(n))
+		return (DictionaryPair)data.lower(new DictionaryPair(key, 0));
+	}
+	
+	// Returns the DictionaryPair with the smallest key strictly larger than a key, null if there is none.
+	public DictionaryPair higher(Comparable key) {										//O(log(n))
+		return (DictionaryPair)data.higher(new DictionaryPair(key, 0));
+	}
+	
 	public void traverseInOrder(TreeAction action) { // O(n)
-		data.traverseNode(data.root, action);
+		data.traverseInOrder(action);
 	}
 }
@@ -0,0 +1,89 @@
+/* This class keeps track of which elements (ids 0, 1, 2, ...) are in the same set, while sets are merged (union-find).
+ * Every set is a tree of ids stored in one array: parent[id] is the parent of an id, a root is its own parent and
+ * represents its set. A union hangs the root of the smaller tree under the root of the larger one, and a find
+ * lets every id it passes point to its grandparent (path halving). Together this keeps the trees so flat that
+ * a find or union costs O(alpha(n)), which is at most 4 for any realistic n.
+ * Graph uses it to answer whether two Nodes are connected by undirected Edges without searching.
+ * Author: Seppe Lampe
+ */
+public class DisjointSets {
+	private int[] parent;
+	private int[] size;							// size[root] is the amount of ids in the set of that root
+	private int count;
+	private int setCount;
+
+	public DisjointSets(int capacity) {
+		if (capacity < 1) {
+			capacity = 1;
+		}
+		parent = new int[capacity];
+		size = new int[capacity];
+		count = 0;
+		setCount = 0;
+	}
+
+	// Add a new id in a set of its own and return it
+	public int add() {																	//O(1) amortized
+		if (count == parent.length) {
+			int[] moreParents = new int[count * 2];
+			int[] moreSizes = new int[count * 2];
+			for (int i = 0; i < count; i++) {
+				moreParents[i] = parent[i];
+				moreSizes[i] = size[i];
+			}
+			parent = moreParents;
+			size = moreSizes;
+		}
+		parent[count] = count;
+		size[count] = 1;
+		setCount++;
+		return count++;
+	}
+
+	// Return the amount of ids
+	public int size() {																	//O(1)
+		return count;
+	}
+
+	// Return the amount of sets
+	public int getSetCount() {															//O(1)
+		return setCount;
+	}
+
+	// Return the root of the set of an id
+	public int find(int id) {															//O(alpha(n))
+		while (parent[id] != id) {
+			parent[id] = parent[parent[id]];
+			id = parent[id];
+		}
+		return id;
+	}
+
+	// Merge the sets of two ids, returns false if they were already in the same set
+	public boolean union(int a, int b) {												//O(alpha(n))
+		int rootA = find(a);
+		int rootB = find(b);
+		if (rootA == rootB) {
+			return false;
+		}
+		if (size[rootA] < size[rootB]) {
+			int swap = rootA;
+			rootA = rootB;
+			rootB = swap;
+		}
+		parent[rootB] = rootA;
+		size[rootA] += size[rootB];
+		setCount--;
+		return true;
+	}
+
+	// Return whether two ids are in the same set
+	public boolean connected(int a, int b) {											//O(alpha(n))
+		return find(a) == find(b);
+	}
+
+	// Return the amount of ids in the set of an id
+	public int setSize(int id) {														//O(alpha(n))
+		return size[find(id)];
+	}
+}
@@ -0,0 +1,209 @@
+/* This class is a cache in front of a Graph for distance and path queries which are asked over and over.
+ * For every source Node that is asked for, the complete ShortestPathTree is kept, so every later question
+ * from the same source is a lookup. At most 'capacity' trees are kept; when the cache is full the tree which
+ * has not been used for the longest time is dropped (LRU). The trees are kept in slots, the order of use
+ * is a doubly linked list over these slots stored in two int arrays, so no objects are made per lookup.
+ * When the Edges of the Graph changed, a cached tree is not dropped but repaired on its next use: only the Nodes
+ * whose shortest path changed are searched again (see FrozenGraph.repair). A tree is only built again when the
+ * Graph no longer remembers the changes since its version (see Graph.changesSince).
+ * Several threads may use one DistanceOracle. Only the bookkeeping of the cache is synchronized: a missing tree
+ * is built outside the lock, so one slow miss does not hold up the hits of other threads.
+ * Author: Seppe Lampe
+ */
+public class DistanceOracle {
+	private Graph graph;
+	private int capacity;
+	private ShortestPathTree[] trees;			// trees[slot] is a cached tree, null if the slot is free
+	private int[] slotSource;					// slotSource[slot] is the id of the source of the tree in that slot
+	private int[] slotOf;						// slotOf[id] is the slot of the tree with that source, -1 if it is not cached
+	private int[] newer;						// The slot used right after this slot, -1 for the most recently used
+	private int[] older;						// The slot used right before this slot, -1 for the least recently used
+	private int newest;
+	private int oldest;
+	private int used;
+	private long hits;
+	private long misses;
+	private long repairs;
+
+	public DistanceOracle(Graph graph, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("A DistanceOracle needs room for at least one tree.");
+		}
+		this.graph = graph;
+		this.capacity = capacity;
+		trees = new ShortestPathTree[capacity];
+		slotSource = new int[capacity];
+		newer = new int[capacity];
+		older = new int[capacity];
+		slotOf = new int[0];
+		clear();
+	}
+
+	/* Return the tree of shortest paths from a Node, from the cache if possible. Returns null if there is no such Node.
+	   A cached tree of an older FrozenGraph is repaired outside the lock, like a missing tree is built outside it. */
+	public ShortestPathTree shortestPathTree(Comparable source) {						//O(1) on a hit, O((V+E)*log(V)) on a miss
+		FrozenGraph frozen = graph.freeze();
+		int id = frozen.findId(source);
+		if (id == -1) {
+			return null;
+		}
+		ShortestPathTree tree = cached(id, frozen);
+		if (tree != null && tree.graph == frozen) {
+			return tree;
+		}
+		if (tree != null) {
+			EdgeChanges changes = graph.changesSince(tree.graph.getVersion());
+			if (changes != null) {
+				tree = changes.getGraph().repair(tree, changes);
+			}
+			else {
+				tree = null;
+			}
+		}
+		if (tree == null) {
+			tree = frozen.shortestPathTree(id);
+		}
+		store(id, tree);
+		return tree;
+	}
+
+	// Return the cached tree of a source and count the hit, repair or miss, null if it is not cached
+	private synchronized ShortestPathTree cached(int id, FrozenGraph frozen) {			//O(1)
+		if (id < slotOf.length && slotOf[id] != -1) {
+			ShortestPathTree tree = trees[slotOf[id]];
+			if (tree.graph == frozen) {
+				hits++;
+			}
+			else {
+				repairs++;
+			}
+			moveToFront(slotOf[id]);
+			return tree;
+		}
+		misses++;
+		return null;
+	}
+
+	// Cache a tree which was just built or repaired, unless another thread cached a tree of a newer Graph first
+	private synchronized void store(int id, ShortestPathTree tree) {					//O(1), O(n) when the index grows
+		if (id >= slotOf.length) {
+			growIndex(tree.graph.size());
+		}
+		if (slotOf[id] != -1) {
+			ShortestPathTree current = trees[slotOf[id]];
+			int versionsAhead = tree.graph.getVersion() - current.graph.getVersion();
+			if (versionsAhead > 0 || (versionsAhead == 0 && tree.graph.size() > current.graph.size())) {
+				trees[slotOf[id]] = tree;
+			}
+			return;
+		}
+		int slot;
+		if (used < capacity) {
+			slot = used++;
+		}
+		else {											// Reuse the slot of the least recently used tree
+			slot = oldest;
+			slotOf[slotSource[slot]] = -1;
+			unlink(slot);
+		}
+		trees[slot] = tree;
+		slotSource[slot] = id;
+		slotOf[id] = slot;
+		linkFront(slot);
+	}
+
+	// Return the shortest distance between two Nodes, -1 if there is no path
+	public double findDistance(Comparable source, Comparable target) {					//O(1) on average on a hit
+		ShortestPathTree tree = shortestPathTree(source);
+		if (tree == null) {
+			return -1;
+		}
+		return tree.distanceTo(target);
+	}
+
+	// Return the labels on a shortest path between two Nodes, an empty Vector if there is no path
+	public Vector findPath(Comparable source, Comparable target) {						//O(length of the path) on average on a hit
+		ShortestPathTree tree = shortestPathTree(source);
+		if (tree == null) {
+			return new Vector(1);
+		}
+		return tree.pathTo(target);
+	}
+
+	// Return the amount of questions answered from the cache
+	public synchronized long getHits() {													//O(1)
+		return hits;
+	}
+
+	// Return the amount of questions for which a cached tree was repaired after the Graph changed
+	public synchronized long getRepairs() {												//O(1)
+		return repairs;
+	}
+
+	// Return the amount of questions for which a new tree had to be built
+	public synchronized long getMisses() {												//O(1)
+		return misses;
+	}
+
+	// Return the amount of cached trees
+	public synchronized int size() {														//O(1)
+		return used;
+	}
+
+	// Drop all cached trees
+	public synchronized void clear() {													//O(capacity + n)
+		for (int i = 0; i < capacity; i++) {
+			trees[i] = null;
+		}
+		for (int i = 0; i < slotOf.length; i++) {
+			slotOf[i] = -1;
+		}
+		used = 0;
+		newest = -1;
+		oldest = -1;
+	}
+
+	// Make the index from source ids to slots large enough for all Nodes of the Graph
+	private void growIndex(int size) {													//O(n)
+		int[] larger = new int[size];
+		for (int i = 0; i < size; i++) {
+			larger[i] = i < slotOf.length ? slotOf[i] : -1;
+		}
+		slotOf = larger;
+	}
+
+	// Mark a slot as the most recently used one
+	private void moveToFront(int slot) {												//O(1)
+		if (slot != newest) {
+			unlink(slot);
+			linkFront(slot);
+		}
+	}
+
+	private void linkFront(int slot) {													//O(1)
+		newer[slot] = -1;
+		older[slot] = newest;
+		if (newest != -1) {
+			newer[newest] = slot;
+		}
+		newest = slot;
+		if (oldest == -1) {
+			oldest = slot;
+		}
+	}
+
+	private void unlink(int slot) {														//O(1)
+		if (newer[slot] != -1) {
+			older[newer[slot]] = older[slot];
+		}
+		else {
+			newest = older[slot];
+		}
+		if (older[slot] != -1) {
+			newer[older[slot]] = newer[slot];
+		}
+		else {
+			oldest = newer[slot];
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/* An EdgeChanges lists the Edges of a Graph which were added or got a new weight between two versions of the
+ * Graph (see Graph.changesSince), together with the FrozenGraph of the newer version. Only which Edges changed
+ * is stored, their weights are read from the FrozenGraph. An undirected Edge gives two changes, one per direction.
+ * An Edge may be listed more than once if it changed several times.
+ * Author: Seppe Lampe
+ */
+public class EdgeChanges {
+	private FrozenGraph graph;
+	private int fromVersion;
+	private int[] from;
+	private int[] to;
+	private int count;
+
+	public EdgeChanges(FrozenGraph graph, int fromVersion, int[] from, int[] to, int count) {
+		this.graph = graph;
+		this.fromVersion = fromVersion;
+		this.from = from;
+		this.to = to;
+		this.count = count;
+	}
+
+	// Return the FrozenGraph with all the changes
+	public FrozenGraph getGraph() {														//O(1)
+		return graph;
+	}
+
+	// Return the version of the Graph before the changes, the version after them is getGraph().getVersion()
+	public int getFromVersion() {														//O(1)
+		return fromVersion;
+	}
+
+	// Return the amount of changes
+	public int size() {																	//O(1)
+		return count;
+	}
+
+	// Return the id of the Node where the i-th changed Edge starts
+	public int getFrom(int i) {															//O(1)
+		return from[i];
+	}
+
+	// Return the id of the Node where the i-th changed Edge ends
+	public int getTo(int i) {															//O(1)
+		return to[i];
+	}
+}
@@ -0,0 +1,675 @@
+/* This class is an immutable, compressed sparse row (CSR) representation of a Graph.
+ * Every Node is an int id from 0 to size() - 1. The Edges of all Nodes are stored next to each other in two
+ * arrays: targets (the id of the Node the Edge points to) and weights. The Edges of Node i are found at the
+ * positions offsets[i] up to offsets[i + 1] - 1. This costs two int arrays and one double array instead of
+ * a RedBlackTree with Edge objects per Node, and scanning the Edges of a Node is a walk through an array.
+ * A FrozenGraph is made by Graph.freeze(). It never changes, when the Graph changes a new one has to be made.
+ * Next to single-source searches it offers a point-to-point search which runs from both ends at the same time,
+ * optionally steered by the lower bounds of precomputed Landmarks (ALT), and an A* search steered by the
+ * coordinates of the Nodes (see GeoHeuristic).
+ * Since it never changes, any amount of threads may search it at the same time. The point-to-point searches keep
+ * their scratch arrays in a SearchContext per thread, so they neither allocate nor clear O(V) memory per search.
+ * A ShortestPathTree of an older FrozenGraph of the same Graph can be repaired to this one (see repair) instead
+ * of searching again: only the Nodes whose shortest path changed are visited.
+ * Author: Seppe Lampe
+ */
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class FrozenGraph {
+	private final SymbolTable symbols;			// The labels of the Nodes and the lookup from a label to its id
+	private final int size;
+	private final int[] offsets;				// The Edges of Node i are at offsets[i] ... offsets[i + 1] - 1
+	private final int[] targets;
+	private final double[] weights;
+	private final int version;					// The version of the Graph this FrozenGraph was made from (see Graph.getVersion)
+	private volatile FrozenGraph reversed;		// The same Graph with every Edge turned around, made when it is first needed
+	private final SearchContextPool contexts;	// Shared with the reversed Graph and the other FrozenGraphs of the same Graph
+
+	private static final byte CUT = 1;			// States of the Nodes while a ShortestPathTree is repaired
+	private static final byte KEPT = 2;
+	private static final byte SETTLED = 3;
+
+	// The SymbolTable may not change afterwards, the reversed Graph shares it
+	public FrozenGraph(SymbolTable symbols, int[] offsets, int[] targets, double[] weights) {
+		this(symbols, offsets, targets, weights, 0);
+	}
+
+	public FrozenGraph(SymbolTable symbols, int[] offsets, int[] targets, double[] weights, int version) {
+		this(symbols, offsets, targets, weights, version, new SearchContextPool());
+	}
+
+	// A FrozenGraph whose searches use the SearchContexts of a pool, see Graph.freeze
+	public FrozenGraph(SymbolTable symbols, int[] offsets, int[] targets, double[] weights, int version, SearchContextPool contexts) {
+		this.symbols = symbols;
+		this.size = offsets.length - 1;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		this.version = version;
+		this.contexts = contexts;
+	}
+
+	// Return the amount of Nodes
+	public int size() {																	//O(1)
+		return size;
+	}
+
+	// Return the version of the Graph from which this FrozenGraph was made
+	public int getVersion() {															//O(1)
+		return version;
+	}
+
+	// Return the amount of Edges
+	public int edgeCount() {															//O(1)
+		return targets.length;
+	}
+
+	// Return the label of a Node
+	public Comparable getLabel(int id) {												//O(1)
+		return symbols.getLabel(id);
+	}
+
+	// Return the id of the Node with a certain label, -1 if there is no such Node
+	public int findId(Comparable label) {												//O(1) on average
+		int id = symbols.find(label);
+		if (id >= size) {
+			return -1;
+		}
+		return id;
+	}
+
+	// Return the position of the first Edge of a Node
+	public int edgesStart(int id) {														//O(1)
+		return offsets[id];
+	}
+
+	// Return the position after the last Edge of a Node
+	public int edgesEnd(int id) {														//O(1)
+		return offsets[id + 1];
+	}
+
+	// Return the id of the Node an Edge points to
+	public int getTarget(int edge) {													//O(1)
+		return targets[edge];
+	}
+
+	// Return the weight of an Edge
+	public double getWeight(int edge) {													//O(1)
+		return weights[edge];
+	}
+
+	// Return the same Nodes and Edges (the arrays are shared) with another version, searching with the SearchContexts of a pool
+	public FrozenGraph rewrap(int version, SearchContextPool contexts) {				//O(1)
+		return new FrozenGraph(symbols, offsets, targets, weights, version, contexts);
+	}
+
+	// Return the Graph with every Edge turned around, an Edge from u to v becomes an Edge from v to u
+	public FrozenGraph reverse() {														//O(V+E) the first time, O(1) afterwards
+		if (reversed != null) {
+			return reversed;
+		}
+		synchronized (this) {
+			if (reversed != null) {
+				return reversed;
+			}
+			int[] reverseOffsets = new int[size + 1];
+			int[] reverseTargets = new int[targets.length];
+			double[] reverseWeights = new double[weights.length];
+			for (int e = 0; e < targets.length; e++) {					// Count the incoming Edges of every Node
+				reverseOffsets[targets[e] + 1]++;
+			}
+			for (int v = 0; v < size; v++) {
+				reverseOffsets[v + 1] += reverseOffsets[v];
+			}
+			int[] position = new int[size];
+			for (int v = 0; v < size; v++) {
+				position[v] = reverseOffsets[v];
+			}
+			for (int u = 0; u < size; u++) {
+				for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+					int slot = position[targets[e]]++;
+					reverseTargets[slot] = u;
+					reverseWeights[slot] = weights[e];
+				}
+			}
+			FrozenGraph result = new FrozenGraph(symbols, reverseOffsets, reverseTargets, reverseWeights, version, contexts);
+			result.reversed = this;
+			reversed = result;
+		}
+		return reversed;
+	}
+
+	// Return the scratch space of the calling thread for searches on this Graph, shared with the other FrozenGraphs of its pool
+	protected SearchContext context() {													//O(V) the first time per thread, O(1) afterwards
+		return contexts.get(size);
+	}
+
+	// Build the tree of shortest paths from a Node to every other Node
+	public ShortestPathTree shortestPathTree(int source) {								//O((V+E)*log(V))
+		return dijkstra(source);
+	}
+
+	/* Build the tree of shortest paths from a Node to every Node within a certain radius. The search runs on the
+	   SearchContext of the calling thread and only the settled Nodes are copied into the result, so it costs as much
+	   as the neighbourhood instead of O(V). */
+	public ShortestPathTree shortestPathTree(int source, double radius) {				//O((V'+E')*log(V')), V' and E' within the radius
+		SearchContext c = context();
+		c.begin();
+		IndexedHeap heap = c.forwardHeap;
+		int[] settled = c.path;								// The settled Nodes are collected in the path arrays of the context
+		double[] distance = c.pathDistance;
+		int[] previous = c.hops;							// For the i-th settled Node: the position of its previous Node
+		int count = 0;
+		c.setForward(source, 0.0, -1);
+		heap.push(source, 0.0);
+		while (!heap.isEmpty()) {
+			int current = heap.pop();
+			double currentDistance = c.forwardDistance[current];
+			settled[count] = current;
+			distance[count] = currentDistance;
+			previous[count] = c.forwardPrevious[current];
+			for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+				int to = targets[e];
+				double newDistance = currentDistance + weights[e];
+				if (newDistance < c.forward(to) && newDistance <= radius) {
+					c.setForward(to, newDistance, count);	// The previous Node is stored as its position in the settled list
+					heap.pushOrDecrease(to, newDistance);
+				}
+			}
+			count++;
+		}
+		return new BoundedShortestPathTree(this, source, settled, distance, previous, count);
+	}
+
+	/* Visit the Nodes in order of their distance from a source, closest first, and stop as soon as the action
+	   returns false. Only the Nodes settled so far are touched, so a search for the few closest Nodes of some kind
+	   costs as much as the neighbourhood it needs instead of the whole Graph. The search runs on the SearchContext
+	   of the calling thread: the action may not start another search on this Graph (or another FrozenGraph of the same
+	   Graph) from the same thread. */
+	public void expand(int source, SearchAction action) {								//O((V'+E')*log(V')), V' and E' settled before stopping
+		SearchContext c = context();
+		c.begin();
+		IndexedHeap heap = c.forwardHeap;
+		c.setForward(source, 0.0, -1);
+		heap.push(source, 0.0);
+		while (!heap.isEmpty()) {
+			int current = heap.pop();
+			double currentDistance = c.forwardDistance[current];
+			if (!action.run(current, currentDistance)) {
+				return;
+			}
+			for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+				int to = targets[e];
+				double newDistance = currentDistance + weights[e];
+				if (newDistance < c.forward(to)) {
+					c.setForward(to, newDistance, current);
+					heap.pushOrDecrease(to, newDistance);
+				}
+			}
+		}
+	}
+
+	// Search a shortest path between two Nodes with Dijkstra, the search stops as soon as the target is reached
+	public ShortestPath shortestPath(int source, int target) {							//O((V+E)*log(V))
+		SearchContext c = context();
+		c.begin();
+		IndexedHeap heap = c.forwardHeap;
+		c.setForward(source, 0.0, -1);
+		heap.push(source, 0.0);
+		boolean found = false;
+		while (!heap.isEmpty()) {
+			int current = heap.pop();
+			if (current == target) {
+				found = true;
+				break;
+			}
+			double currentDistance = c.forwardDistance[current];
+			for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+				int to = targets[e];
+				double newDistance = currentDistance + weights[e];
+				if (newDistance < c.forward(to)) {
+					c.setForward(to, newDistance, current);
+					heap.pushOrDecrease(to, newDistance);
+				}
+			}
+		}
+		int length = 0;
+		if (found) {
+			for (int v = target; v != -1; v = c.previous(v)) {
+				c.path[length++] = v;
+			}
+			for (int i = 0, j = length - 1; i < j; i++, j--) {
+				int swap = c.path[i];
+				c.path[i] = c.path[j];
+				c.path[j] = swap;
+			}
+			for (int i = 0; i < length; i++) {
+				c.pathDistance[i] = c.forwardDistance[c.path[i]];
+			}
+		}
+		return c.toPath(this, source, length);
+	}
+
+	/* Search a shortest path between two Nodes with A*: the key of a Node is its distance from the source plus
+	 * the straight-line estimate of its distance to the target (see GeoHeuristic), so the search grows towards
+	 * the target instead of in every direction. The estimate is consistent, the search stops when the target is
+	 * settled. The heuristic has to be admissible and made for this FrozenGraph. */
+	public ShortestPath shortestPath(int source, int target, GeoHeuristic heuristic) {	//O((V+E)*log(V)), usually far less
+		SearchContext c = context();
+		c.begin();
+		IndexedHeap heap = c.forwardHeap;
+		c.setForward(source, 0.0, -1);
+		heap.push(source, heuristic.estimate(source, target));
+		boolean found = false;
+		while (!heap.isEmpty()) {
+			int current = heap.pop();
+			if (current == target) {
+				found = true;
+				break;
+			}
+			double currentDistance = c.forwardDistance[current];
+			for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+				int to = targets[e];
+				double newDistance = currentDistance + weights[e];
+				if (newDistance < c.forward(to)) {
+					if (!c.hasPotential(to)) {						// The estimate of a Node is computed once per search
+						c.setPotential(to, heuristic.estimate(to, target));
+					}
+					c.setForward(to, newDistance, current);
+					heap.pushOrDecrease(to, newDistance + c.potential[to]);
+				}
+			}
+		}
+		int length = 0;
+		if (found) {
+			for (int v = target; v != -1; v = c.previous(v)) {
+				c.path[length++] = v;
+			}
+			for (int i = 0, j = length - 1; i < j; i++, j--) {
+				int swap = c.path[i];
+				c.path[i] = c.path[j];
+				c.path[j] = swap;
+			}
+			for (int i = 0; i < length; i++) {
+				c.pathDistance[i] = c.forwardDistance[c.path[i]];
+			}
+		}
+		return c.toPath(this, source, length);
+	}
+
+	/* Return the distances from every source to every target: table[i][j] is the distance from sources[i] to
+	 * targets[j], -1 if there is no path or if one of both ids is -1. The sources are searched in parallel on the
+	 * common fork-join pool, each with Dijkstra on the SearchContext of its own thread. A search stops as soon as
+	 * all targets are settled, so a table towards nearby targets only visits their neighbourhood.
+	 * A ContractionHierarchy answers the same question with far smaller searches (see its distanceTable). */
+	public double[][] distanceTable(int[] sources, int[] targets) {					//O(S*(V+E)*log(V)/cores)
+		double[][] table = new double[sources.length][targets.length];
+		int[] firstColumn = new int[size];					// The columns of a target Node form a chain: firstColumn, then nextColumn
+		int[] nextColumn = new int[targets.length];
+		for (int v = 0; v < size; v++) {
+			firstColumn[v] = -1;
+		}
+		int distinctTargets = 0;
+		for (int j = 0; j < targets.length; j++) {
+			if (targets[j] == -1) {
+				continue;
+			}
+			if (firstColumn[targets[j]] == -1) {
+				distinctTargets++;
+			}
+			nextColumn[j] = firstColumn[targets[j]];
+			firstColumn[targets[j]] = j;
+		}
+		ForkJoinPool.commonPool().invoke(new TableTask(sources, table, firstColumn, nextColumn, distinctTargets, 0, sources.length));
+		return table;
+	}
+
+	// Fill one row of a distance table with Dijkstra from its source, until all targets are settled
+	private void tableRow(int source, double[] row, int[] firstColumn, int[] nextColumn, int distinctTargets) {
+		for (int j = 0; j < row.length; j++) {
+			row[j] = -1;
+		}
+		if (source == -1 || distinctTargets == 0) {
+			return;
+		}
+		SearchContext c = context();
+		c.begin();
+		IndexedHeap heap = c.forwardHeap;
+		c.setForward(source, 0.0, -1);
+		heap.push(source, 0.0);
+		while (!heap.isEmpty()) {
+			int current = heap.pop();
+			double currentDistance = c.forwardDistance[current];
+			if (firstColumn[current] != -1) {
+				for (int j = firstColumn[current]; j != -1; j = nextColumn[j]) {
+					row[j] = currentDistance;
+				}
+				if (--distinctTargets == 0) {
+					return;
+				}
+			}
+			for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+				int to = targets[e];
+				double newDistance = currentDistance + weights[e];
+				if (newDistance < c.forward(to)) {
+					c.setForward(to, newDistance, current);
+					heap.pushOrDecrease(to, newDistance);
+				}
+			}
+		}
+	}
+
+	// Fills the rows from ... to - 1 of a distance table, split in halves until a task has a single row
+	private class TableTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int[] sources;
+		private double[][] table;
+		private int[] firstColumn;
+		private int[] nextColumn;
+		private int distinctTargets;
+		private int from;
+		private int to;
+
+		public TableTask(int[] sources, double[][] table, int[] firstColumn, int[] nextColumn, int distinctTargets, int from, int to) {
+			this.sources = sources;
+			this.table = table;
+			this.firstColumn = firstColumn;
+			this.nextColumn = nextColumn;
+			this.distinctTargets = distinctTargets;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new TableTask(sources, table, firstColumn, nextColumn, distinctTargets, from, middle),
+						new TableTask(sources, table, firstColumn, nextColumn, distinctTargets, middle, to));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				tableRow(sources[i], table[i], firstColumn, nextColumn, distinctTargets);
+			}
+		}
+	}
+
+	/* Search a shortest path between two Nodes from both ends at the same time: forwards from the source and
+	 * backwards (on the reversed Graph) from the target. When landmarks are given both searches are A* searches
+	 * with the potential p(v) = (lowerBound(v, target) - lowerBound(source, v)) / 2 (forwards) and -p(v)
+	 * (backwards). These potentials are consistent, so every Node is settled at most once per direction, and
+	 * the search can stop as soon as the two smallest keys together reach the best path found so far.
+	 * Nodes which the landmarks prove to be off every path from the source to the target are skipped.
+	 * The returned tree only contains the path itself: its settled Nodes are the Nodes on the path. */
+	public ShortestPath shortestPath(int source, int target, Landmarks landmarks) {	//O((V+E)*log(V)), usually far less
+		SearchContext c = context();
+		c.begin();
+		FrozenGraph reverseGraph = reverse();
+		IndexedHeap forwardHeap = c.forwardHeap;
+		IndexedHeap backwardHeap = c.backwardHeap;
+		c.setForward(source, 0.0, -1);
+		c.setBackward(target, 0.0, -1);
+		double best = source == target ? 0.0 : Double.POSITIVE_INFINITY;
+		int meeting = source == target ? source : -1;
+		if (landmarks == null || landmarks.lowerBound(source, target) != Double.POSITIVE_INFINITY) {
+			forwardHeap.push(source, potential(source, source, target, landmarks, c));
+			backwardHeap.push(target, -potential(target, source, target, landmarks, c));
+		}
+		while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()) {
+			if (forwardHeap.topKey() + backwardHeap.topKey() >= best) {		// No path through an unsettled Node can be shorter
+				break;
+			}
+			if (forwardHeap.size() <= backwardHeap.size()) {				// Expand the smaller of both frontiers
+				int current = forwardHeap.pop();
+				double currentDistance = c.forwardDistance[current];
+				for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+					int to = targets[e];
+					double newDistance = currentDistance + weights[e];
+					if (newDistance < c.forward(to)) {
+						double p = potential(to, source, target, landmarks, c);
+						if (p == Double.NEGATIVE_INFINITY) {				// The Node cannot be on a path to the target
+							continue;
+						}
+						c.setForward(to, newDistance, current);
+						forwardHeap.pushOrDecrease(to, newDistance + p);
+						double through = newDistance + c.backward(to);
+						if (through < best) {
+							best = through;
+							meeting = to;
+						}
+					}
+				}
+			}
+			else {
+				int current = backwardHeap.pop();
+				double currentDistance = c.backwardDistance[current];
+				for (int e = reverseGraph.offsets[current]; e < reverseGraph.offsets[current + 1]; e++) {
+					int to = reverseGraph.targets[e];
+					double newDistance = currentDistance + reverseGraph.weights[e];
+					if (newDistance < c.backward(to)) {
+						double p = potential(to, source, target, landmarks, c);
+						if (p == Double.NEGATIVE_INFINITY) {
+							continue;
+						}
+						c.setBackward(to, newDistance, current);
+						backwardHeap.pushOrDecrease(to, newDistance - p);
+						double through = c.forward(to) + newDistance;
+						if (through < best) {
+							best = through;
+							meeting = to;
+						}
+					}
+				}
+			}
+		}
+		int[] path = c.path;
+		double[] pathDistance = c.pathDistance;
+		int[] position = c.position;								// The position of a Node on the path, -1 if it is not on it
+		int length = 0;
+		if (meeting != -1) {
+			for (int v = meeting; v != -1; v = c.previous(v)) {		// The forward half, from the meeting Node back to the source
+				path[length++] = v;
+			}
+			for (int i = 0, j = length - 1; i < j; i++, j--) {
+				int swap = path[i];
+				path[i] = path[j];
+				path[j] = swap;
+			}
+			for (int i = 0; i < length; i++) {
+				position[path[i]] = i;
+				pathDistance[i] = c.forwardDistance[path[i]];
+			}
+			for (int v = meeting; c.next(v) != -1; v = c.next(v)) {	// Glue the backward half of the path to the forward half
+				int w = c.next(v);
+				if (position[w] != -1) {							// w is already on the path, what is in between is a cycle of weight 0
+					for (int i = position[w] + 1; i < length; i++) {
+						position[path[i]] = -1;
+					}
+					length = position[w] + 1;
+				}
+				else {
+					pathDistance[length] = pathDistance[length - 1] + (c.backwardDistance[v] - c.backwardDistance[w]);
+					position[w] = length;
+					path[length++] = w;
+				}
+			}
+		}
+		return c.toPath(this, source, length);
+	}
+
+	/* Return the forward potential of a Node for a search from source to target, computed once per Node and search.
+	 * Double.NEGATIVE_INFINITY is returned for Nodes which the landmarks prove cannot be on a path to the target. */
+	private double potential(int v, int source, int target, Landmarks landmarks, SearchContext c) {	//O(amount of landmarks)
+		if (c.hasPotential(v)) {
+			return c.potential[v];
+		}
+		double value;
+		if (landmarks == null) {
+			value = 0.0;
+		}
+		else {
+			double toTarget = landmarks.lowerBound(v, target);
+			double fromSource = landmarks.lowerBound(source, v);
+			if (toTarget == Double.POSITIVE_INFINITY || fromSource == Double.POSITIVE_INFINITY) {
+				value = Double.NEGATIVE_INFINITY;
+			}
+			else {
+				value = (toTarget - fromSource) / 2;
+			}
+		}
+		c.setPotential(v, value);
+		return value;
+	}
+
+	/* Turn a full ShortestPathTree (not limited by a radius) of an older FrozenGraph of the same Graph into the tree
+	 * for this FrozenGraph.
+	 * The changes are the Edges which were added or got a new weight since then (see Graph.changesSince).
+	 * Every distance of the old tree is still the length of a path, unless that path uses an Edge which became
+	 * longer. So first the subtrees hanging below such Edges are cut off: their distances are forgotten and they
+	 * get the best distance through an incoming Edge from outside the subtree. Then the Edges which became
+	 * shorter (or are new) are tried, and Dijkstra's algorithm is started from every Node which improved.
+	 * It only continues from Nodes whose distance improves, so the rest of the tree is never visited again.
+	 * Finally the settled order is restored by merging the Nodes that changed (already in order) into the others.
+	 * Copying the tree costs O(V); the search only costs O((V'+E')*log(V')) for the V' Nodes whose path changed.
+	 * A tree without full arrays (a BoundedShortestPathTree or a ShortestPath) cannot be repaired, its source is searched again. */
+	public ShortestPathTree repair(ShortestPathTree old, EdgeChanges changes) {	//O(V + (V'+E')*log(V'))
+		if (old.distance == null || old.previous == null) {
+			return shortestPathTree(old.source);
+		}
+		ShortestPathTree tree = new ShortestPathTree(this, old.source);
+		double[] distance = tree.distance;
+		int[] previous = tree.previous;
+		int oldSize = old.graph.size();
+		for (int v = 0; v < oldSize; v++) {					// Nodes added since then are not reached yet
+			distance[v] = old.distance[v];
+			previous[v] = old.previous[v];
+		}
+		byte[] state = new byte[size];						// 0 unknown, CUT if its path used a longer Edge, KEPT otherwise, SETTLED once searched again
+		IndexedHeap heap = new IndexedHeap(size);
+		int cut = 0;
+		for (int i = 0; i < changes.size(); i++) {			// The tree Edges which became longer
+			int u = changes.getFrom(i);
+			int v = changes.getTo(i);
+			if (previous[v] == u && distance[u] + edgeWeight(u, v) > distance[v]) {
+				state[v] = CUT;
+				cut++;
+			}
+		}
+		if (cut > 0) {
+			int[] stack = new int[size];
+			for (int v = 0; v < size; v++) {				// A Node is cut off if one of its ancestors is
+				int top = 0;
+				int x = v;
+				while (x != -1 && state[x] == 0) {
+					stack[top++] = x;
+					x = previous[x];
+				}
+				byte result = x == -1 ? KEPT : state[x];
+				while (top > 0) {
+					state[stack[--top]] = result;
+				}
+			}
+			for (int v = 0; v < size; v++) {
+				if (state[v] == CUT) {
+					distance[v] = Double.POSITIVE_INFINITY;
+					previous[v] = -1;
+				}
+			}
+			FrozenGraph reverse = reverse();
+			for (int v = 0; v < size; v++) {				// Reconnect the cut off Nodes through Edges from outside the subtrees
+				if (state[v] != CUT) {
+					continue;
+				}
+				for (int e = reverse.offsets[v]; e < reverse.offsets[v + 1]; e++) {
+					int from = reverse.targets[e];
+					double newDistance = distance[from] + reverse.weights[e];
+					if (state[from] != CUT && newDistance < distance[v]) {
+						distance[v] = newDistance;
+						previous[v] = from;
+					}
+				}
+				if (distance[v] != Double.POSITIVE_INFINITY) {
+					heap.push(v, distance[v]);
+				}
+			}
+		}
+		for (int i = 0; i < changes.size(); i++) {			// The Edges which became shorter or are new
+			int u = changes.getFrom(i);
+			int v = changes.getTo(i);
+			double newDistance = distance[u] + edgeWeight(u, v);
+			if (newDistance < distance[v]) {
+				distance[v] = newDistance;
+				previous[v] = u;
+				heap.pushOrDecrease(v, newDistance);
+			}
+		}
+		int[] changed = new int[size];						// The Nodes settled again, in order of their new distance
+		int changedCount = 0;
+		while (!heap.isEmpty()) {
+			int current = heap.pop();
+			state[current] = SETTLED;
+			changed[changedCount++] = current;
+			double currentDistance = distance[current];
+			for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+				int to = targets[e];
+				double newDistance = currentDistance + weights[e];
+				if (newDistance < distance[to]) {
+					distance[to] = newDistance;
+					previous[to] = current;
+					heap.pushOrDecrease(to, newDistance);
+				}
+			}
+		}
+		int i = 0;
+		int j = 0;
+		while (i < old.settledCount || j < changedCount) {	// Merge the untouched Nodes (still in order) with the changed ones
+			if (i < old.settledCount && (state[old.settled[i]] == CUT || state[old.settled[i]] == SETTLED)) {
+				i++;
+			}
+			else if (j == changedCount || (i < old.settledCount && distance[old.settled[i]] <= distance[changed[j]])) {
+				tree.settled[tree.settledCount++] = old.settled[i++];
+			}
+			else {
+				tree.settled[tree.settledCount++] = changed[j++];
+			}
+		}
+		return tree;
+	}
+
+	// Return the weight of the Edge from u to v, Double.POSITIVE_INFINITY if there is none
+	private double edgeWeight(int u, int v) {											//O(d), d the degree of u
+		for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+			if (targets[e] == v) {
+				return weights[e];
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/* Dijkstra's algorithm on an IndexedHeap. Every Node enters the heap at most once and its distance is
+	 * lowered in place, so each Node is settled once and each Edge is relaxed once: O((V+E)*log(V)).
+	 * The weights of the Edges may not be negative. The tree holds every Node of the Graph and is returned to
+	 * the caller, so it is made fresh instead of using the SearchContext. */
+	private ShortestPathTree dijkstra(int source) {										//O((V+E)*log(V))
+		ShortestPathTree tree = new ShortestPathTree(this, source);
+		IndexedHeap heap = new IndexedHeap(size);
+		double[] distance = tree.distance;
+		tree.distance[source] = 0.0;
+		heap.push(source, 0.0);
+		while (!heap.isEmpty()) {
+			int current = heap.pop();
+			tree.settled[tree.settledCount++] = current;
+			double currentDistance = distance[current];
+			for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+				int to = targets[e];
+				double newDistance = currentDistance + weights[e];
+				if (newDistance < distance[to]) {		// We found a shorter path to this Node, relax the Edge
+					distance[to] = newDistance;
+					tree.previous[to] = current;
+					heap.pushOrDecrease(to, newDistance);
+				}
+			}
+		}
+		return tree;
+	}
+}
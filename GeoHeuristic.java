@@ -0,0 +1,72 @@
+/* This class turns the coordinates of the Nodes of a FrozenGraph into a lower bound for the distance between them,
+ * to steer an A* search towards its target (see FrozenGraph.shortestPath(int, int, GeoHeuristic)).
+ * A road is never shorter than the straight line between its ends, but the weights of the Edges do not have to be
+ * in km (minutes, metres, ...). So the straight-line distance is multiplied by scale: the smallest ratio
+ * weight / straight-line length over all Edges. Then scale * straight(u, v) <= weight(u, v) for every Edge, and
+ * with the triangle inequality of straight lines the estimate scale * straight(v, target) is admissible and
+ * consistent: every Node is settled at most once and the first time the target is settled its distance is exact.
+ * The bound only holds if every Node has coordinates; otherwise the heuristic is not admissible and not used.
+ * Author: Seppe Lampe
+ */
+public class GeoHeuristic {
+	private FrozenGraph graph;
+	private double[] latitude;					// Copied, so later changes to the SpatialIndex do not affect a search
+	private double[] longitude;
+	private double scale;
+	private boolean admissible;
+
+	public GeoHeuristic(FrozenGraph graph, SpatialIndex places) {						//O(V+E)
+		int size = graph.size();
+		this.graph = graph;
+		admissible = true;
+		for (int v = 0; v < size && admissible; v++) {
+			admissible = places.isLocated(v);
+		}
+		if (!admissible) {
+			return;
+		}
+		latitude = new double[size];
+		longitude = new double[size];
+		for (int v = 0; v < size; v++) {
+			latitude[v] = places.getLatitude(v);
+			longitude[v] = places.getLongitude(v);
+		}
+		scale = Double.POSITIVE_INFINITY;
+		for (int u = 0; u < size; u++) {
+			for (int e = graph.edgesStart(u); e < graph.edgesEnd(u); e++) {
+				double straight = straightDistance(u, graph.getTarget(e));
+				if (straight > 0 && graph.getWeight(e) / straight < scale) {
+					scale = graph.getWeight(e) / straight;
+				}
+			}
+		}
+		if (scale == Double.POSITIVE_INFINITY) {		// No Edge between different points, the bound is 0
+			scale = 0.0;
+		}
+	}
+
+	// Return the FrozenGraph for which the heuristic was made
+	public FrozenGraph getGraph() {														//O(1)
+		return graph;
+	}
+
+	// Return whether every Node has coordinates, only then the estimates are lower bounds
+	public boolean isAdmissible() {														//O(1)
+		return admissible;
+	}
+
+	// Return the weight of an Edge per km of straight line, at least
+	public double getScale() {															//O(1)
+		return scale;
+	}
+
+	// Return the straight-line distance in km between two Nodes
+	public double straightDistance(int u, int v) {										//O(1)
+		return SpatialIndex.distance(latitude[u], longitude[u], latitude[v], longitude[v]);
+	}
+
+	// Return a lower bound for the distance from a Node to a target
+	public double estimate(int v, int target) {											//O(1)
+		return scale * straightDistance(v, target);
+	}
+}
@@ -1,28 +1,120 @@
-
-/* This class is a representation of a graph structure. It stores Nodes in a Tree structure.
- * Each Node contains a RedBlackTree with its edges. An Edge is defined as a new class.
- * An Edge has two parameters: toNode, the Node to which it connects the original Node and weight,
- * an optional parameter for defining the weight of the edge.
- * The fact that edges are stored in an RedBlackTree is because they will be searched a lot, so an ordinary binary Tree is not 
- * efficient enough. Yet distances between two points can change (new roads, roadworks, new train schedule, etc.).
- * That's why a RedBlackTree was chosen above an AVLTree.
+/* This class is a representation of a graph structure. Every Node gets a dense id from a SymbolTable and is stored
+ * in an array at that id, so finding the Node of a label is a hash lookup.
+ * Each Node keeps its edges in two arrays: the ids of the Nodes they lead to and their weights (0 if no weight is given).
+ * Most streets only have two to four neighbours, so scanning a few ints is faster than searching a tree and needs
+ * no object per edge. A Node with many neighbours (a square, a station) also gets a hash index from target id to
+ * edge, so finding one of its edges stays O(1). Distances between two points can change (new roads, roadworks,
+ * new train schedule, etc.), the weight of an edge is changed in place.
+ * The searches (distances, paths, connectivity) do not run on the Nodes themselves but on a FrozenGraph, a compact
+ * array-based copy of the Graph which is made by freeze() and reused until the Graph changes.
+ * Many threads may search at the same time while others change the Graph. The changes are synchronized; a search
+ * takes the current FrozenGraph once and works on that snapshot only, so it never waits for a change to finish
+ * and never sees half of one. Its scratch space is private to its thread (see SearchContext).
+ * Every added Edge and every new weight is written in a log, so a ShortestPathTree of an older version can be
+ * repaired instead of searched again (see changesSince and FrozenGraph.repair).
+ * Nodes may get coordinates (latitude, longitude), which are kept in a SpatialIndex. They answer straight-line
+ * questions (which Nodes are near a point) without a search, and once every Node has them they steer the
+ * point-to-point searches with an A* heuristic (see GeoHeuristic).
  * Author: Seppe Lampe 
  */
 public class Graph {
 	public class Node implements Comparable {
 		private Comparable info;
-		private RedBlackTree edges;
-		private double visited;
+		private int[] targets;						// targets[i] is the id of the Node the i-th edge leads to
+		private double[] weights;
+		private int degree;
+		private int[] index;						// Hash index: position + 1 of the edge to a target, 0 for an empty slot. null while the degree is low
+		private int id;								// Position of the Node in nodeList, used to index the arrays of the search algorithms
 
 		public Node(Comparable label) {
 			info = label;
-			visited = 0;
-			edges = new RedBlackTree();
+			id = -1;
+			targets = new int[2];
+			weights = new double[2];
+			degree = 0;
+			index = null;
+		}
+
+		// Return the position of the edge to a Node (by id), -1 if there is no such edge
+		public int findEdge(int target) {											//O(1), on average for a high degree
+			if (index == null) {
+				for (int i = 0; i < degree; i++) {
+					if (targets[i] == target) {
+						return i;
+					}
+				}
+				return -1;
+			}
+			int mask = index.length - 1;
+			for (int slot = slot(target, mask); index[slot] != 0; slot = (slot + 1) & mask) {
+				if (targets[index[slot] - 1] == target) {
+					return index[slot] - 1;
+				}
+			}
+			return -1;
+		}
+
+		// Adds an edge to the Node, returns false (and prints a message) if there already is an edge to that Node
+		public boolean addEdge(int target, double weight) {							//O(1) amortized
+			if (findEdge(target) != -1) {
+				System.out.println("Edge is already in graph.");
+				return false;
+			}
+			if (degree == targets.length) {
+				int[] moreTargets = new int[degree * 2];
+				double[] moreWeights = new double[degree * 2];
+				for (int i = 0; i < degree; i++) {
+					moreTargets[i] = targets[i];
+					moreWeights[i] = weights[i];
+				}
+				targets = moreTargets;
+				weights = moreWeights;
+			}
+			targets[degree] = target;
+			weights[degree] = weight;
+			degree++;
+			if (index != null && degree * 2 <= index.length) {
+				addToIndex(degree - 1);
+			}
+			else if (degree > HASH_DEGREE) {										// Keep the index at most half full
+				index = new int[Integer.highestOneBit(degree) * 4];
+				for (int i = 0; i < degree; i++) {
+					addToIndex(i);
+				}
+			}
+			return true;
+		}
+
+		private void addToIndex(int position) {
+			int mask = index.length - 1;
+			int slot = slot(targets[position], mask);
+			while (index[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			index[slot] = position + 1;
+		}
+
+		private int slot(int target, int mask) {
+			int h = target * 0x9E3779B9;
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		// Return the amount of edges
+		public int getDegree() {													//O(1)
+			return degree;
+		}
+
+		// Return the id of the Node the i-th edge leads to
+		public int getTarget(int i) {												//O(1)
+			return targets[i];
 		}
 
-		// Adds an edge to the Node
-		public void addEdge(Edge e) {
-			edges.insert(e);
+		public double getWeight(int i) {											//O(1)
+			return weights[i];
+		}
+
+		public void setWeight(int i, double weight) {								//O(1)
+			weights[i] = weight;
 		}
 
 		// Compare two Nodes base don their label
@@ -42,151 +134,705 @@ public class Graph {
 			return getLabel().toString();
 		}
 
+		// Return a String representation of the edges of the Node
+		public String edgesToString() {
+			String result = "";
+			for (int i = 0; i < degree; i++) {
+				result += nodeList[targets[i]].getLabel().toString();
+				if (weights[i] != 0) {
+					result += String.format(" weight %s", weights[i]);
+				}
+				result += " ";
+			}
+			return result;
+		}
+
 	}
+	
+	private SymbolTable symbols;				// Gives every label its id, new streets are added at the end when an area is expanded
+	private Node[] nodeList;					// The Nodes, indexed by their id
+	private int nodeCount;
+	private volatile int version;				// Increased on every change to the Edges, used to see whether cached distances are outdated
+	private volatile FrozenGraph frozen;		/* The Graph in its compact, read-only form. All searches run on it.
+												* It is built on the first search after a change and then reused. */
+	private volatile int landmarkCount;			// The amount of landmarks used by point-to-point searches, 0 for none
+	private volatile Landmarks landmarks;		// Rebuilt on the first search after the FrozenGraph changed
+	private volatile ContractionHierarchy hierarchy;	// Only used while it belongs to the current FrozenGraph
+	private SpatialIndex places;				// The coordinates of the Nodes which have them
+	private volatile GeoHeuristic geo;			// Made on the first search after the FrozenGraph or the coordinates changed
+	private DisjointSets undirectedSets;		// The Nodes connected by undirected Edges, updated on every new Edge
+	private boolean directedEdges;				// Whether an Edge was added in one direction only, then undirectedSets is not enough
+	private volatile ConnectivityIndex connectivity;	// Follows the added Edges, rebuilt on the next connectivity question when it cannot
+	private SearchContextPool contexts;			// The scratch space of the searching threads, reused by every FrozenGraph
+	private int[] logVersion;					// The log of changed Edges: logVersion[i] is the version made by the i-th change
+	private int[] logFrom;
+	private int[] logTo;
+	private int logCount;
+	private int logBase;						// The log holds all changes made after this version
 
-	private class Edge implements Comparable {
-		private Node toNode;
-		private double weight;
-		
-		public Edge(Node to) {
-			toNode = to;
-			weight = 0;
+	private static final int MAX_LOG = 1 << 16;		// When the log is full, its oldest half is dropped
+	private static final int HASH_DEGREE = 8;		// A Node with more edges gets a hash index on them
+
+	public Graph() {
+		symbols = new SymbolTable(8);
+		nodeList = new Node[8];
+		nodeCount = 0;
+		version = 0;
+		frozen = null;
+		landmarkCount = 0;
+		landmarks = null;
+		hierarchy = null;
+		places = new SpatialIndex();
+		geo = null;
+		undirectedSets = new DisjointSets(8);
+		directedEdges = false;
+		connectivity = null;
+		contexts = new SearchContextPool();
+		logVersion = new int[8];
+		logFrom = new int[8];
+		logTo = new int[8];
+		logCount = 0;
+		logBase = 0;
+	}
+
+	/* Make a Graph with the Nodes (same ids) and Edges of a FrozenGraph, e.g. one read by GraphLoader.
+	   The Edges go straight into the arrays of their Nodes and the arrays of the FrozenGraph are kept as the first
+	   snapshot (with the SearchContextPool of this Graph), so searches can start without freezing the Graph again. */
+	public Graph(FrozenGraph graph) {												//O(V+E)
+		this();
+		int size = graph.size();
+		nodeList = new Node[Math.max(size, 8)];
+		undirectedSets = new DisjointSets(size);
+		for (int id = 0; id < size; id++) {
+			Node n = new Node(graph.getLabel(id));
+			n.id = symbols.add(n.getLabel());
+			nodeList[nodeCount++] = n;
+			undirectedSets.add();
 		}
-		
-		public Edge(Node to, double w) {
-			toNode = to;
-			weight = w;
+		for (int u = 0; u < size; u++) {
+			for (int e = graph.edgesStart(u); e < graph.edgesEnd(u); e++) {
+				nodeList[u].addEdge(graph.getTarget(e), graph.getWeight(e));
+			}
 		}
-
-		// Compare two Edges, they are equal if they point to the same Node
-		public int compareTo(Object o) {
-			//Two edges are equal if they point to the same node. 
-			//This assumes that the edges are starting from the same node !!!
-			Edge n = (Edge) o;
-			return n.toNode.compareTo(toNode);
+		graph = graph.rewrap(graph.getVersion(), contexts);
+		FrozenGraph reverse = graph.reverse();					// The Edges are undirected if every Edge has one in the opposite direction
+		int[] mark = new int[size];
+		for (int u = 0; u < size; u++) {
+			mark[u] = -1;
 		}
-		
-		// Return a String representation of the Edge
-		public String toString() {
-			if (weight != 0) {
-				return String.format("%s weight %i", toNode.getLabel().toString(), weight);
+		for (int u = 0; u < size && !directedEdges; u++) {
+			if (graph.edgesEnd(u) - graph.edgesStart(u) != reverse.edgesEnd(u) - reverse.edgesStart(u)) {
+				directedEdges = true;
+			}
+			for (int e = graph.edgesStart(u); e < graph.edgesEnd(u); e++) {
+				mark[graph.getTarget(e)] = u;
+			}
+			for (int e = reverse.edgesStart(u); e < reverse.edgesEnd(u) && !directedEdges; e++) {
+				if (mark[reverse.getTarget(e)] != u) {
+					directedEdges = true;
+				}
+			}
+		}
+		for (int u = 0; u < size; u++) {
+			for (int e = graph.edgesStart(u); e < graph.edgesEnd(u); e++) {
+				undirectedSets.union(u, graph.getTarget(e));
 			}
-			return toNode.getLabel().toString();
 		}
+		version = graph.getVersion();
+		logBase = version;
+		frozen = graph;
 	}
-	
-	public class Pair implements Comparable{
-		public Object element1;
-		public Object element2;
-	
-		public Pair(Object el1 , Object el2) {
-			this.element1 = el1;
-			this.element2 = el2;
+
+	// Add a Node to the Graph
+	public synchronized void addNode(Comparable label) {								//O(1) amortized
+		if (symbols.find(label) != -1) {
+			System.out.println("Node is already in graph.");
+			return;
 		}
-		
-		public int compareTo(Object o) {
-		Pair p2 = (Pair)o;
-		return ((Comparable)element1).compareTo(p2.element1);
+		Node n = new Node(label);
+		if (nodeCount == nodeList.length) {
+			Node[] larger = new Node[nodeCount * 2];
+			for (int i = 0; i < nodeCount; i++) {
+				larger[i] = nodeList[i];
+			}
+			nodeList = larger;
 		}
+		n.id = symbols.add(label);
+		nodeList[nodeCount++] = n;
+		undirectedSets.add();
+		frozen = null;
 	}
 
-	private RedBlackTree nodes;					/* The choice has been made to store the Nodes in a RedBlackTree since
-												* new Nodes get added when an area is expanded. Searching in this graph still
-												* is much better than in an ordinary Tree while adding is not as heavy as in
-												AVLTrees. */
-
-	public Graph() {
-		nodes = new RedBlackTree();
+	// Add a Node with its coordinates (in degrees) to the Graph
+	public synchronized void addNode(Comparable label, double latitude, double longitude) {	//O(1) amortized
+		if (symbols.find(label) != -1) {
+			System.out.println("Node is already in graph.");
+			return;
+		}
+		addNode(label);
+		setCoordinates(label, latitude, longitude);
 	}
 
-	// Add a Node to the Graph (Tree)
-	public void addNode(Comparable label) {
-		nodes.insert(new Node(label));
+	// Give a Node without coordinates its coordinates (in degrees), returns false if that is not possible
+	public synchronized boolean setCoordinates(Comparable label, double latitude, double longitude) {	//O(1) amortized
+		int id = symbols.find(label);
+		if (id == -1) {
+			System.out.println(String.format("%s is not in the graph.", label));
+			return false;
+		}
+		if (!places.add(id, latitude, longitude)) {
+			return false;
+		}
+		geo = null;
+		return true;
 	}
 
-	// Search for a Node in the Graph
-	private Node findNode(Comparable nodeLabel) {
-		return (Node) nodes.find(new Node(nodeLabel));
+	// Search for a Node in the Graph, null if there is no Node with this label
+	private Node findNode(Comparable nodeLabel) {									//O(1) on average
+		int id = symbols.find(nodeLabel);
+		if (id == -1) {
+			return null;
+		}
+		return nodeList[id];
 	}
 
 	// Add a unidirectional Edge between two Nodes in the Graph, with the weight
-	public void addEdge(Comparable nodeLabel1, Comparable nodeLabel2, double weight) {
+	public synchronized void addEdge(Comparable nodeLabel1, Comparable nodeLabel2, double weight) {
 		Node n1 = findNode(nodeLabel1);
 		Node n2 = findNode(nodeLabel2);
-		n1.addEdge(new Edge(n2, weight));
+		boolean added = n1.addEdge(n2.id, weight);
+		if (added) {
+			if (n2.findEdge(n1.id) == -1) {		// Without the Edge back the Graph is no longer undirected
+				directedEdges = true;
+			}
+			frozen = null;						// First drop the snapshot, so whoever sees the new version also sees a new snapshot
+			version++;
+			log(n1, n2);
+			connect(n1, n2);
+		}
 	}
 	
 	// Add a unidirectional Edge between two Nodes in the Graph, without weight
-	public void addEdge(Comparable nodeLabel1, Comparable nodeLabel2) {
+	public synchronized void addEdge(Comparable nodeLabel1, Comparable nodeLabel2) {
 		Node n1 = findNode(nodeLabel1);
 		Node n2 = findNode(nodeLabel2);
-		n1.addEdge(new Edge(n2));
+		boolean added = n1.addEdge(n2.id, 0);
+		if (added) {
+			if (n2.findEdge(n1.id) == -1) {
+				directedEdges = true;
+			}
+			frozen = null;
+			version++;
+			log(n1, n2);
+			connect(n1, n2);
+		}
 	}
 	
 	// Add a bidirectional Edge between two Nodes in the Graph, with the weight
-	public void addUndirectedEdge(Comparable nodeLabel1, Comparable nodeLabel2, double weight) {
+	public synchronized void addUndirectedEdge(Comparable nodeLabel1, Comparable nodeLabel2, double weight) {
 		Node n1 = findNode(nodeLabel1);
 		Node n2 = findNode(nodeLabel2);
-		n1.addEdge(new Edge(n2, weight));
-		n2.addEdge(new Edge(n1, weight));
+		boolean added1 = n1.addEdge(n2.id, weight);
+		boolean added2 = n2.addEdge(n1.id, weight);
+		undirectedSets.union(n1.id, n2.id);
+		if (added1 || added2) {
+			frozen = null;
+			version++;
+		}
+		if (added1) {
+			log(n1, n2);
+			connect(n1, n2);
+		}
+		if (added2) {
+			log(n2, n1);
+			connect(n2, n1);
+		}
 	}
 	
 	// Add a bidirectional Edge between two Nodes in the Graph, without weight
-	public void addUndirectedEdge(Comparable nodeLabel1, Comparable nodeLabel2) {
+	public synchronized void addUndirectedEdge(Comparable nodeLabel1, Comparable nodeLabel2) {
+		Node n1 = findNode(nodeLabel1);
+		Node n2 = findNode(nodeLabel2);
+		boolean added1 = n1.addEdge(n2.id, 0);
+		boolean added2 = n2.addEdge(n1.id, 0);
+		undirectedSets.union(n1.id, n2.id);
+		if (added1 || added2) {
+			frozen = null;
+			version++;
+		}
+		if (added1) {
+			log(n1, n2);
+			connect(n1, n2);
+		}
+		if (added2) {
+			log(n2, n1);
+			connect(n2, n1);
+		}
+	}
+	
+	/* Give the Edge from one Node to another a new weight, e.g. when roadworks make a street slower.
+	   Returns false (and prints a message) if there is no such Edge. */
+	public synchronized boolean updateEdgeWeight(Comparable nodeLabel1, Comparable nodeLabel2, double weight) {	//O(1) on average
 		Node n1 = findNode(nodeLabel1);
 		Node n2 = findNode(nodeLabel2);
-		n1.addEdge(new Edge(n2));
-		n2.addEdge(new Edge(n1));
+		int connection = n1 == null || n2 == null ? -1 : n1.findEdge(n2.id);
+		if (connection == -1) {
+			System.out.println(String.format("There is no edge from %s to %s.", nodeLabel1, nodeLabel2));
+			return false;
+		}
+		n1.setWeight(connection, weight);
+		frozen = null;
+		version++;
+		log(n1, n2);
+		return true;
+	}
+	
+	// Give the Edges in both directions between two Nodes a new weight, returns false if one of them is missing
+	public synchronized boolean updateUndirectedEdgeWeight(Comparable nodeLabel1, Comparable nodeLabel2, double weight) {	//O(1) on average
+		Node n1 = findNode(nodeLabel1);
+		Node n2 = findNode(nodeLabel2);
+		int connection1 = n1 == null || n2 == null ? -1 : n1.findEdge(n2.id);
+		int connection2 = n1 == null || n2 == null ? -1 : n2.findEdge(n1.id);
+		if (connection1 == -1 || connection2 == -1) {
+			System.out.println(String.format("There is no edge between %s and %s.", nodeLabel1, nodeLabel2));
+			return false;
+		}
+		n1.setWeight(connection1, weight);
+		n2.setWeight(connection2, weight);
+		frozen = null;
+		version++;
+		log(n1, n2);
+		log(n2, n1);
+		return true;
+	}
+	
+	// Give an added Edge to the ConnectivityIndex, which is dropped if it cannot follow it
+	private void connect(Node from, Node to) {
+		ConnectivityIndex current = connectivity;
+		if (current != null && !current.addEdge(from.id, to.id)) {
+			connectivity = null;
+		}
 	}
 	
-	// Print a representation of the Graph
-	public void print() {
-		nodes.traverseInOrder(new TreeAction() {						
-			public void run(Tree.TreeNode n) {
-				System.out.println(String.format("%s: %s", n.getValue().toString(), ((Node)n.getValue()).edges.toString()));
+	// Write a changed Edge in the log under the current version
+	private void log(Node from, Node to) {											//O(1) amortized
+		if (logCount == MAX_LOG) {					// Drop the oldest half, without splitting the changes of one version
+			int drop = logCount / 2;
+			while (drop < logCount && logVersion[drop] == logVersion[drop - 1]) {
+				drop++;
 			}
-		});
+			logBase = logVersion[drop - 1];
+			for (int i = drop; i < logCount; i++) {
+				logVersion[i - drop] = logVersion[i];
+				logFrom[i - drop] = logFrom[i];
+				logTo[i - drop] = logTo[i];
+			}
+			logCount -= drop;
+		}
+		if (logCount == logVersion.length) {
+			int[] moreVersions = new int[logCount * 2];
+			int[] moreFrom = new int[logCount * 2];
+			int[] moreTo = new int[logCount * 2];
+			for (int i = 0; i < logCount; i++) {
+				moreVersions[i] = logVersion[i];
+				moreFrom[i] = logFrom[i];
+				moreTo[i] = logTo[i];
+			}
+			logVersion = moreVersions;
+			logFrom = moreFrom;
+			logTo = moreTo;
+		}
+		logVersion[logCount] = version;
+		logFrom[logCount] = from.id;
+		logTo[logCount] = to.id;
+		logCount++;
 	}
 	
-	// Find the shortest distance between two Nodes
-	public double findDistance(Comparable nodeLabel1, Comparable nodeLabel2) {
-		Vector path = findPath(nodeLabel1, nodeLabel2, true);
-		if(path.isEmpty()) {
-			System.out.println(String.format("No path was found from %s to %s", nodeLabel1, nodeLabel2));
+	/* Return the Edges which changed since a certain version, together with the current FrozenGraph.
+	   Returns null if the log no longer goes back that far, then the distances have to be computed again. */
+	public synchronized EdgeChanges changesSince(int oldVersion) {					//O(changes), O(V+E) if the Graph has to be frozen
+		if (oldVersion < logBase || oldVersion > version) {
+			return null;
+		}
+		FrozenGraph snapshot = freeze();
+		int first = logCount;
+		while (first > 0 && logVersion[first - 1] > oldVersion) {
+			first--;
+		}
+		int count = logCount - first;
+		int[] from = new int[count];
+		int[] to = new int[count];
+		for (int i = 0; i < count; i++) {
+			from[i] = logFrom[first + i];
+			to[i] = logTo[first + i];
+		}
+		return new EdgeChanges(snapshot, oldVersion, from, to, count);
+	}
+	
+	// Print a representation of the Graph, the Nodes in the order in which they were added
+	public synchronized void print() {
+		for (int i = 0; i < nodeCount; i++) {
+			System.out.println(String.format("%s: %s", nodeList[i].toString(), nodeList[i].edgesToString()));
+		}
+	}
+	
+	// Return the version of the Edges of the Graph, it changes every time an Edge is added or gets a new weight
+	public int getVersion() {														//O(1)
+		return version;
+	}
+	
+	/* Return the Graph in its compact, read-only form (see FrozenGraph). The Nodes keep their ids.
+	   The FrozenGraph is built once and reused until the Graph changes. */
+	public FrozenGraph freeze() {													//O(V+E) after a change, O(1) otherwise
+		FrozenGraph current = frozen;
+		if (current != null) {
+			return current;
+		}
+		synchronized (this) {
+			if (frozen != null) {
+				return frozen;
+			}
+			int edgeCount = 0;
+			for (int i = 0; i < nodeCount; i++) {
+				edgeCount += nodeList[i].degree;
+			}
+			int[] offsets = new int[nodeCount + 1];
+			int[] targets = new int[edgeCount];
+			double[] weights = new double[edgeCount];
+			int position = 0;
+			for (int i = 0; i < nodeCount; i++) {
+				offsets[i] = position;
+				Node n = nodeList[i];
+				for (int j = 0; j < n.degree; j++) {
+					targets[position] = n.targets[j];
+					weights[position] = n.weights[j];
+					position++;
+				}
+			}
+			offsets[nodeCount] = position;
+			frozen = new FrozenGraph(symbols.copy(), offsets, targets, weights, version, contexts);
+			return frozen;
+		}
+	}
+	
+	/* Let point-to-point searches (findDistance, findPath, areConnected) use a certain amount of landmarks.
+	   The landmarks are computed on the first search and computed again on the first search after the Edges changed.
+	   Computing them costs two full searches per landmark, so this pays off when many searches follow. */
+	public synchronized void prepareLandmarks(int count) {							//O(1)
+		landmarkCount = count;
+		landmarks = null;
+	}
+	
+	/* Return the landmarks for a FrozenGraph, null if no landmarks are used.
+	   Two threads which both find the landmarks outdated may both compute them, one of both results is kept. */
+	private Landmarks landmarks(FrozenGraph snapshot) {								//O(count*(V+E)*log(V)) after a change, O(1) otherwise
+		int count = landmarkCount;
+		if (count == 0) {
+			return null;
+		}
+		Landmarks current = landmarks;
+		if (current == null || current.getGraph() != snapshot) {
+			current = new Landmarks(snapshot, count);
+			landmarks = current;
+		}
+		return current;
+	}
+	
+	/* Preprocess the Graph into a contraction hierarchy, after which point-to-point searches settle only a few
+	   hundred Nodes. The hierarchy is not updated when the Graph changes: until this method is called again the
+	   searches fall back to the bidirectional search. Call it again after a batch of changes.
+	   The hierarchy is built on a snapshot, searches and changes can go on in the meantime. */
+	public ContractionHierarchy buildContractionHierarchy() {						//Roughly O(n*log(n)) on road networks
+		ContractionHierarchy result = new ContractionHierarchy(freeze());
+		hierarchy = result;
+		return result;
+	}
+	
+	// Return the contraction hierarchy if it belongs to a FrozenGraph, null otherwise
+	private ContractionHierarchy hierarchy(FrozenGraph snapshot) {					//O(1)
+		ContractionHierarchy current = hierarchy;
+		if (current != null && current.getGraph() == snapshot) {
+			return current;
+		}
+		return null;
+	}
+	
+	/* Return the straight-line heuristic for a FrozenGraph, null if it is not admissible (some Node has no
+	   coordinates) or useless (an Edge between different points has weight 0). Its result is kept until the
+	   FrozenGraph or the coordinates change, so a Graph without coordinates only pays for it once per change. */
+	private GeoHeuristic geo(FrozenGraph snapshot) {								//O(V+E) after a change, O(1) otherwise
+		GeoHeuristic current = geo;
+		if (current == null || current.getGraph() != snapshot) {
+			synchronized (this) {								// The SpatialIndex may not change while it is copied
+				current = new GeoHeuristic(snapshot, places);
+				geo = current;
+			}
+		}
+		if (!current.isAdmissible() || current.getScale() == 0) {
+			return null;
+		}
+		return current;
+	}
+	
+	// Return the labels of the Nodes within a straight-line distance (in km) of a point
+	public synchronized Vector nodesWithin(double latitude, double longitude, double radius) {	//O(cells in the circle + Nodes in them)
+		int[] ids = places.withinRadius(latitude, longitude, radius);
+		Vector result = new Vector(ids.length + 1);
+		for (int i = 0; i < ids.length; i++) {
+			result.addLast(nodeList[ids[i]].getLabel());
+		}
+		return result;
+	}
+	
+	// Return the label of the Node closest to a point in a straight line, null if no Node has coordinates
+	public synchronized Comparable nearestNode(double latitude, double longitude) {	//O(cells and Nodes within the distance of the nearest Node)
+		int id = places.nearest(latitude, longitude);
+		if (id == -1) {
+			return null;
+		}
+		return nodeList[id].getLabel();
+	}
+	
+	/* Return the labels of the Nodes which may be within a certain distance of a Node along the Edges, in the unit
+	   of the weights: every other Node is proven to be further away by its straight-line distance alone. This
+	   needs no search, only the cells of the SpatialIndex around the Node are visited.
+	   Returns null if nothing can be ruled out this way (see geo) or if there is no such Node. */
+	public Vector candidatesWithin(Comparable nodeLabel, double distance) {			//O(V+E) after a change, O(cells in the circle + Nodes in them) otherwise
+		FrozenGraph snapshot = freeze();
+		int id = snapshot.findId(nodeLabel);
+		GeoHeuristic heuristic = geo(snapshot);
+		if (id == -1 || heuristic == null) {
+			return null;
+		}
+		int[] ids;
+		synchronized (this) {
+			ids = places.withinRadius(places.getLatitude(id), places.getLongitude(id), distance / heuristic.getScale());
+		}
+		Vector result = new Vector(ids.length + 1);
+		for (int i = 0; i < ids.length; i++) {
+			if (ids[i] < snapshot.size()) {					// Nodes added after the snapshot are not reached by its searches either
+				result.addLast(snapshot.getLabel(ids[i]));
+			}
+		}
+		return result;
+	}
+	
+	// Return the id of a Node in a FrozenGraph, -1 (and a message) if there is no such Node
+	private int findId(FrozenGraph snapshot, Comparable nodeLabel) {				//O(1) on average
+		int id = snapshot.findId(nodeLabel);
+		if (id == -1) {
+			System.out.println(String.format("%s is not in the graph.", nodeLabel));
+		}
+		return id;
+	}
+	
+	/* Search a shortest path with the fastest available method, the result only holds the path (see ShortestPath):
+	   a contraction hierarchy, else the prepared landmarks, else the coordinates of the Nodes (A*), else a plain
+	   bidirectional search. */
+	private ShortestPath shortestPath(FrozenGraph snapshot, int source, int target) {
+		ContractionHierarchy current = hierarchy(snapshot);
+		if (current != null) {
+			return current.shortestPath(source, target);
+		}
+		Landmarks prepared = landmarks(snapshot);
+		GeoHeuristic heuristic = prepared == null ? geo(snapshot) : null;
+		if (heuristic != null) {
+			return snapshot.shortestPath(source, target, heuristic);
+		}
+		return snapshot.shortestPath(source, target, prepared);
+	}
+	
+	// Find the shortest distance between two Nodes, -1 if there is no path
+	public double findDistance(Comparable nodeLabel1, Comparable nodeLabel2) {		//O((V+E)*log(V)), usually far less
+		FrozenGraph snapshot = freeze();
+		int source = findId(snapshot, nodeLabel1);
+		int target = findId(snapshot, nodeLabel2);
+		if (source == -1 || target == -1) {
 			return -1;
 		}
-		return ((Node) path.getLast()).visited;
+		double distance = distance(snapshot, source, target);
+		if(distance == -1) {
+			System.out.println(String.format("No path was found from %s to %s", nodeLabel1, nodeLabel2));
+		}
+		return distance;
+	}
+	
+	/* Return the shortest distances from one Node to each of the given Nodes, -1 for a Node without a path or which
+	   is not in the Graph. Every distance is one point-to-point search, so this is meant for a few Nodes. */
+	public double[] distancesTo(Comparable nodeLabel, Vector targets) {			//O(T*(V+E)*log(V)), usually far less
+		FrozenGraph snapshot = freeze();
+		double[] result = new double[targets.size()];
+		int source = findId(snapshot, nodeLabel);
+		for (int i = 0; i < result.length; i++) {
+			int target = snapshot.findId(targets.get(i));
+			result[i] = source == -1 || target == -1 ? -1 : distance(snapshot, source, target);
+		}
+		return result;
+	}
+	
+	// The shortest distance between two Nodes with the fastest available method (see shortestPath), -1 if there is no path
+	private double distance(FrozenGraph snapshot, int source, int target) {
+		ContractionHierarchy current = hierarchy(snapshot);
+		if (current != null) {
+			return current.distance(source, target);
+		}
+		return shortestPath(snapshot, source, target).distanceTo(target);
+	}
+	
+	/* Return the distances from every label in sources to every label in targets as a table of doubles:
+	   table[i][j] is the distance from sources.get(i) to targets.get(j), -1 if there is no path or no such Node.
+	   With a contraction hierarchy the table is built from buckets, otherwise with one search per source which
+	   stops once every target is reached. Either way the searches run in parallel. */
+	public double[][] distanceTable(Vector sources, Vector targets) {				//O((S+T)*CH search), O(S*(V+E)*log(V)/cores) without CH
+		FrozenGraph snapshot = freeze();
+		int[] sourceIds = new int[sources.size()];
+		int[] targetIds = new int[targets.size()];
+		for (int i = 0; i < sourceIds.length; i++) {
+			sourceIds[i] = findId(snapshot, sources.get(i));
+		}
+		for (int j = 0; j < targetIds.length; j++) {
+			targetIds[j] = findId(snapshot, targets.get(j));
+		}
+		ContractionHierarchy current = hierarchy(snapshot);
+		if (current != null) {
+			return current.distanceTable(sourceIds, targetIds);
+		}
+		return snapshot.distanceTable(sourceIds, targetIds);
+	}
+	
+	// Return the distance of a given path (Vector of labels), -1 if two consecutive Nodes of it are not connected
+	// Every step of the path is looked up in the Edges of the previous Node
+	public double findDistance(Vector path) {										//O(k*d), k the length of the path and d the degree of its Nodes
+		FrozenGraph snapshot = freeze();
+		double distance = 0;
+		for (int i = 1; i < path.size(); i++) {
+			int from = findId(snapshot, path.get(i - 1));
+			int to = findId(snapshot, path.get(i));
+			if (from == -1 || to == -1) {
+				return -1;
+			}
+			int e = snapshot.edgesStart(from);
+			while (e < snapshot.edgesEnd(from) && snapshot.getTarget(e) != to) {
+				e++;
+			}
+			if (e == snapshot.edgesEnd(from)) {
+				System.out.println(String.format("There is no edge from %s to %s", path.get(i - 1), path.get(i)));
+				return -1;
+			}
+			distance += snapshot.getWeight(e);
+		}
+		return distance;
 	}
 	
-	// Return the distance of a given path (Vector)
-	//If you want to print out a path and it's distance then it is more efficient to save the path in a variable and then use this method
-	public double findDistance(Vector path) {
-		return ((Node) path.getLast()).visited;		//This method works in O(1)
+	// Find a shortest path between two Nodes, returns a Vector with the labels on the path or an empty Vector if there is none
+	public Vector findPath(Comparable nodeLabel1, Comparable nodeLabel2) {			//O((V+E)*log(V)), usually far less
+		FrozenGraph snapshot = freeze();
+		int source = findId(snapshot, nodeLabel1);
+		int target = findId(snapshot, nodeLabel2);
+		if (source == -1 || target == -1) {
+			return new Vector(1);
+		}
+		return shortestPath(snapshot, source, target).pathTo(target);
 	}
 	
-	public boolean areConnected(Comparable nodeLabel1, Comparable nodeLabel2) {
-		if (findPath(nodeLabel1, nodeLabel2, false) == null) {
+	/* Return whether there is a path from one Node to another, without searching.
+	   As long as all Edges are undirected the answer comes from the DisjointSets, which are updated on every new Edge.
+	   Once there are directed Edges it comes from a ConnectivityIndex, which is kept up to date as Edges are added. */
+	public boolean areConnected(Comparable nodeLabel1, Comparable nodeLabel2) {	//O(alpha(n)), O(V+E) when the ConnectivityIndex has to be built
+		synchronized (this) {
+			if (!directedEdges) {
+				int source = symbols.find(nodeLabel1);
+				int target = symbols.find(nodeLabel2);
+				if (source == -1 || target == -1) {
+					System.out.println(String.format("%s is not in the graph.", source == -1 ? nodeLabel1 : nodeLabel2));
+					return false;
+				}
+				return undirectedSets.connected(source, target);
+			}
+		}
+		FrozenGraph snapshot = freeze();
+		int source = findId(snapshot, nodeLabel1);
+		int target = findId(snapshot, nodeLabel2);
+		if (source == -1 || target == -1) {
 			return false;
 		}
-		return true;
+		return connectivity(snapshot).reachable(source, target);
+	}
+	
+	/* Return a ConnectivityIndex which knows every Node of a FrozenGraph. A new one is built from the FrozenGraph
+	   when there is none (or it misses Nodes added since), see install. */
+	private ConnectivityIndex connectivity(FrozenGraph snapshot) {					//O(V+E) when it is built, O(1) otherwise
+		ConnectivityIndex current = connectivity;
+		if (current == null || current.size() < snapshot.size()) {
+			current = new ConnectivityIndex(snapshot);
+			install(current);
+		}
+		return current;
+	}
+	
+	/* Keep a new ConnectivityIndex for the next questions. It was built without the lock, so the Edges added since
+	   its FrozenGraph are taken from the log first. If the log does not go back that far it is used only once. */
+	private synchronized void install(ConnectivityIndex index) {					//O(changes since its FrozenGraph)
+		int built = index.getGraph().getVersion();
+		if (built < logBase) {
+			return;
+		}
+		for (int i = 0; i < logCount; i++) {
+			if (logVersion[i] > built && !index.addEdge(logFrom[i], logTo[i])) {
+				return;
+			}
+		}
+		connectivity = index;
+	}
+	
+	// Build the tree of shortest paths from a Node to every other Node of the Graph, null if there is no such Node
+	public ShortestPathTree shortestPathTree(Comparable nodeLabel) {				//O((V+E)*log(V))
+		FrozenGraph snapshot = freeze();
+		int source = findId(snapshot, nodeLabel);
+		if (source == -1) {
+			return null;
+		}
+		return snapshot.shortestPathTree(source);
+	}
+	
+	/* Build the tree of shortest paths from a Node to every Node within a certain radius.
+	   Only the Nodes within the radius are visited, so the cost depends on the size of the neighbourhood. */
+	public ShortestPathTree shortestPathTree(Comparable nodeLabel, double radius) {	//O((V'+E')*log(V')), V' and E' within the radius
+		FrozenGraph snapshot = freeze();
+		int source = findId(snapshot, nodeLabel);
+		if (source == -1) {
+			return null;
+		}
+		return snapshot.shortestPathTree(source, radius);
+	}
+	
+	/* Build the same tree as shortestPathTree(nodeLabel), but spread the work over all cores (see DeltaStepping).
+	   This pays off on large Graphs; the distances are equal, ties between equally short paths may be broken differently. */
+	public ShortestPathTree parallelShortestPathTree(Comparable nodeLabel) {		//O((V+E)*log(V)/cores) on most graphs
+		FrozenGraph snapshot = freeze();
+		int source = findId(snapshot, nodeLabel);
+		if (source == -1) {
+			return null;
+		}
+		return new DeltaStepping(snapshot).shortestPathTree(source);
 	}
 	
 	// Convert a Tree to a Graph
-	public Graph treeToGraph(Tree tree) {													//O(n*log(n))			
+	public Graph treeToGraph(Tree tree) {													//O(n) on average			
 		Graph result = new Graph();
 		tree.traverseInOrder(new TreeAction() {												//O(n)
 			public void run(Tree.TreeNode n)	{
-				if (result.findNode(n.getValue()) == null) {								//O(log(n))
+				if (result.findNode(n.getValue()) == null) {								//O(1) on average
 					result.addNode(n.getValue());
 				}
 				if (n.getRightNode() != null) {
-					if (result.findNode(n.getRightNode().getValue()) == null) {				//O(log(n))
+					if (result.findNode(n.getRightNode().getValue()) == null) {				//O(1) on average
 						result.addNode(n.getRightNode().getValue());
 					}					
 					result.addEdge(n.getValue(), n.getRightNode().getValue());
 				}
 				if (n.getLeftNode() != null) {
-					if (result.findNode(n.getLeftNode().getValue()) == null) {				//O(log(n))
+					if (result.findNode(n.getLeftNode().getValue()) == null) {				//O(1) on average
 						result.addNode(n.getLeftNode().getValue());
 					}
 					result.addEdge(n.getValue(), n.getLeftNode().getValue());
@@ -196,102 +842,4 @@ public class Graph {
 		return result;
 	}
 	
-	// Set all visited flags to -1
-	private void resetVisitedFlags() {
-		nodes.traverseInOrder(new TreeAction() {					//O(n)
-			public void run(Tree.TreeNode n) {
-				((Node)n.getValue()).visited = -1;					//Set all visited flags to -1 (unvisited)
-			}
-		});
-	}
-	
-	/* This method is a lengthy, time consuming method finding the SHORTEST path between two Nodes 
-	 * if the boolean parameter shortestPath is true. 
-	   It returns first path it can find if the boolean is set to false. */
-	private Vector findPath(Comparable nodeLabel1, Comparable nodeLabel2, boolean shortestPath) {	// O(n*n)
-		Node startState = findNode(nodeLabel1);
-		Vector path = new Vector(5);
-		path.addLast(startState);
-		if (nodeLabel1 == nodeLabel2) {
-			startState.visited = 0.0;
-			return path;
-		}
-		Node endState = findNode(nodeLabel2);
-		Stack toDoList = new Stack();
-		Vector result = new Vector(5);
-		double currentDistance = 0;
-		double shortestDistance = 0;
-		resetVisitedFlags();	//Set all visited flags to -1 (unvisited)
-		startState.visited = 0.0;
-
-		
-		/* Objects on the Stack will be pairs, the first element of the Pair is the origin of the Edge 
-		   while the second element is the Edge. */
-		startState.edges.traverseInOrder(new TreeAction() {				
-			public void run(Tree.TreeNode n) {
-				// Adds the Edges of the Startnode to the Stack
-				toDoList.push(new Pair(startState, n.getValue()));
-			}
-		});
-
-		while (!toDoList.isEmpty()) {
-			Pair currentPair = (Pair) toDoList.pop();
-			Node sourceNode = (Node) currentPair.element1;
-			Edge currentEdge = (Edge) currentPair.element2;
-			
-			/* This loop checks whether last element of the current path is the source Node.
-			*  If it is not then the current path must be a dead-end, we need to go back.
-			*  So the last Node should be removed from the path and we check the Node before it. */					
-			while (path.getLast() != sourceNode) { 
-				path.removeLast();	
-			}	
-			//We confirmed that the last element in our path is the source Node, we can continue on our path
-			
-			//Set the tracked distance back to the one of which the current element is an edge
-			currentDistance = ((Node) path.getLast()).visited;
-			
-			// The current Node is only interesting if it has not been visited yet or if we found a shorter path to it
-			if(currentEdge.toNode.visited == -1.0 || currentDistance < currentEdge.toNode.visited) {
-				if(currentEdge.toNode != startState) {
-					currentDistance += currentEdge.weight;
-				}
-				currentEdge.toNode.visited = currentDistance;
-				if (currentEdge.toNode == endState) {	//We have reached the destination
-					if (shortestDistance == 0 || currentDistance < shortestDistance) {
-						path.addLast(currentEdge.toNode);
-						
-						/* If we just want a path then we can return the first one we find.
-						*  Otherwise we will continue looking for better paths */
-						if(!shortestPath) {	
-							return path;
-						}
-						shortestDistance = currentDistance;
-						result = path.copy();
-						path.removeLast();
-					}
-				}
-				
-				/* If the destination is not reached then we keep following the edges of the current Node.
-				   This traverse adds all the viable edges to the Stack */
-				else if (shortestDistance == 0.0 || currentDistance < shortestDistance){
-					final double distanceToThisPoint = currentDistance;
-					currentEdge.toNode.edges.traverseInOrder(new TreeAction() {						
-						public void run(Tree.TreeNode n) {	//O(n)
-							double connectedNodeVisited = ((Edge)n.getValue()).toNode.visited;
-							Edge connection = ((Edge)n.getValue());
-							if (connectedNodeVisited == -1.0 || connectedNodeVisited > connection.weight + distanceToThisPoint) {			//If this node has not been visited yet, we can add it to the stack
-								toDoList.push(new Pair(currentEdge.toNode, connection));
-								connectedNodeVisited = connection.weight + distanceToThisPoint;
-							}
-						}
-					});
-					path.addLast(currentEdge.toNode); 
-					/* Since we are doing a depth first search we will save the current element 
-					   in our path before following one of its edges. */				
-				}
-			}
-		}
-		return result;
-	}
-	
 }
\ No newline at end of file
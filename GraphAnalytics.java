@@ -0,0 +1,290 @@
+/* This class answers questions about the structure of a whole FrozenGraph, e.g. a street map:
+ * - components: which Nodes are connected when the direction of the Edges is ignored (the districts of a city
+ *   which can not reach each other show up as separate components). Union-find over all Edges (see DisjointSets).
+ * - betweenness: for every Node the amount of shortest paths between other Nodes which pass through it (Brandes).
+ *   Streets with a high betweenness are the bottlenecks of the map. Every source needs one Dijkstra search and
+ *   one pass back over the settled Nodes in reverse order, which divides the pair dependencies over the Nodes.
+ * - eccentricity: the largest distance from a Node to any Node it reaches. Exact for one Node, or as lower bounds
+ *   for all Nodes at once from a sample of searches on the reversed Graph: ecc(v) >= d(v, s) for every sample s.
+ * The searches of different sources are independent, so they are spread over a fork-join pool: the sources are
+ * cut in a few chunks per core, every chunk keeps its own work arrays and totals, which are added up at the end.
+ * Author: Seppe Lampe
+ */
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class GraphAnalytics {
+	private static final int CHUNKS_PER_THREAD = 4;			// More chunks than threads, so a slow chunk does not hold up the rest
+
+	private FrozenGraph graph;
+	private FrozenGraph reverseGraph;
+	private ForkJoinPool pool;
+	private int[] component;					// Computed on the first question about components
+	private int componentCount;
+
+	public GraphAnalytics(FrozenGraph graph, ForkJoinPool pool) {
+		this.graph = graph;
+		this.reverseGraph = graph.reverse();
+		this.pool = pool;
+	}
+
+	// Uses the shared fork-join pool
+	public GraphAnalytics(FrozenGraph graph) {
+		this(graph, ForkJoinPool.commonPool());
+	}
+
+	// Return the Graph which is analysed
+	public FrozenGraph getGraph() {															//O(1)
+		return graph;
+	}
+
+	/* Return for every Node the number of its component, Edges taken in both directions.
+	   The components are numbered 0, 1, ... in the order of the smallest id in them. */
+	public synchronized int[] components() {												//O(V+E*alpha(V)), O(1) afterwards
+		if (component != null) {
+			return component;
+		}
+		int size = graph.size();
+		DisjointSets sets = new DisjointSets(size);
+		for (int v = 0; v < size; v++) {
+			sets.add();
+		}
+		for (int u = 0; u < size; u++) {
+			for (int e = graph.edgesStart(u); e < graph.edgesEnd(u); e++) {
+				sets.union(u, graph.getTarget(e));
+			}
+		}
+		int[] numberOfRoot = new int[size];
+		for (int v = 0; v < size; v++) {
+			numberOfRoot[v] = -1;
+		}
+		int[] result = new int[size];
+		int count = 0;
+		for (int v = 0; v < size; v++) {
+			int root = sets.find(v);
+			if (numberOfRoot[root] == -1) {
+				numberOfRoot[root] = count++;
+			}
+			result[v] = numberOfRoot[root];
+		}
+		componentCount = count;
+		component = result;
+		return component;
+	}
+
+	// Return the amount of components
+	public synchronized int getComponentCount() {											//O(V+E*alpha(V)) the first time, O(1) afterwards
+		components();
+		return componentCount;
+	}
+
+	// Return the amount of Nodes in every component, indexed by the number of the component
+	public int[] componentSizes() {															//O(V)
+		int[] numbers = components();
+		int[] sizes = new int[getComponentCount()];
+		for (int v = 0; v < numbers.length; v++) {
+			sizes[numbers[v]]++;
+		}
+		return sizes;
+	}
+
+	// Return the exact betweenness centrality of every Node, with every Node as a source
+	public double[] betweenness() {															//O(V*(V+E)*log(V)/cores)
+		int size = graph.size();
+		int[] sources = new int[size];
+		for (int v = 0; v < size; v++) {
+			sources[v] = v;
+		}
+		return betweenness(sources, 1.0);
+	}
+
+	/* Return an estimate of the betweenness centrality of every Node from a sample of random sources.
+	   The totals are scaled up by size / samples, so they are comparable with the exact values.
+	   A few hundred samples are usually enough to find the bottlenecks of a city. */
+	public double[] betweenness(int samples, long seed) {									//O(samples*(V+E)*log(V)/cores)
+		int size = graph.size();
+		if (samples >= size) {
+			return betweenness();
+		}
+		return betweenness(sample(samples, seed), (double) size / samples);
+	}
+
+	/* Brandes' algorithm from every given source. For directed Graphs every ordered pair counts once,
+	   so on a Graph with only undirected Edges every path is counted in both directions. */
+	private double[] betweenness(int[] sources, double scale) {
+		int size = graph.size();
+		double[] result = new double[size];
+		pool.invoke(new SourceTask(sources, result, true, 0, sources.length, chunkSize(sources.length)));
+		for (int v = 0; v < size; v++) {
+			result[v] *= scale;
+		}
+		return result;
+	}
+
+	// Return the largest distance from a Node to a Node it reaches, 0 if it reaches no other Node
+	public double eccentricity(int id) {													//O((V+E)*log(V))
+		ShortestPathTree tree = graph.shortestPathTree(id);
+		return tree.getDistance(tree.size() - 1);
+	}
+
+	/* Return a lower bound of the eccentricity of every Node, using the distances towards a sample of random
+	   Nodes (searched on the reversed Graph, so one search gives d(v, s) for all v at once). A Node reaching no
+	   sample gets 0. With samples >= size every Node is a sample and the bounds are the exact eccentricities. */
+	public double[] eccentricityLowerBounds(int samples, long seed) {						//O(samples*(V+E)*log(V)/cores)
+		int size = graph.size();
+		int[] sources;
+		if (samples >= size) {
+			sources = new int[size];
+			for (int v = 0; v < size; v++) {
+				sources[v] = v;
+			}
+		}
+		else {
+			sources = sample(samples, seed);
+		}
+		double[] result = new double[size];
+		pool.invoke(new SourceTask(sources, result, false, 0, sources.length, chunkSize(sources.length)));
+		return result;
+	}
+
+	// Pick a certain amount of different Nodes at random (partial Fisher-Yates shuffle)
+	private int[] sample(int samples, long seed) {											//O(V)
+		int size = graph.size();
+		int[] ids = new int[size];
+		for (int v = 0; v < size; v++) {
+			ids[v] = v;
+		}
+		Random random = new Random(seed);
+		int[] result = new int[samples];
+		for (int i = 0; i < samples; i++) {
+			int j = i + random.nextInt(size - i);
+			int swap = ids[i];
+			ids[i] = ids[j];
+			ids[j] = swap;
+			result[i] = ids[i];
+		}
+		return result;
+	}
+
+	// The amount of sources per chunk, so that there are a few chunks for every thread of the pool
+	private int chunkSize(int sources) {
+		int chunks = pool.getParallelism() * CHUNKS_PER_THREAD;
+		return Math.max(1, (sources + chunks - 1) / chunks);
+	}
+
+	/* Runs the searches from sources[from ... to - 1], split in halves until a task has at most chunkSize sources.
+	 * A task adds its own totals to the shared result once, under a lock on the result. */
+	private class SourceTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int[] sources;
+		private double[] result;
+		private boolean centrality;				// true for betweenness, false for eccentricity bounds
+		private int from;
+		private int to;
+		private int chunkSize;
+
+		public SourceTask(int[] sources, double[] result, boolean centrality, int from, int to, int chunkSize) {
+			this.sources = sources;
+			this.result = result;
+			this.centrality = centrality;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		protected void compute() {
+			if (to - from > chunkSize) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new SourceTask(sources, result, centrality, from, middle, chunkSize),
+						new SourceTask(sources, result, centrality, middle, to, chunkSize));
+				return;
+			}
+			if (from == to) {
+				return;
+			}
+			double[] local = centrality ? brandes() : farthest();
+			synchronized (result) {
+				for (int v = 0; v < local.length; v++) {
+					if (centrality) {
+						result[v] += local[v];
+					}
+					else if (local[v] > result[v]) {
+						result[v] = local[v];
+					}
+				}
+			}
+		}
+
+		// The dependencies of all Nodes on the sources of this task
+		private double[] brandes() {
+			int size = graph.size();
+			double[] total = new double[size];
+			double[] distance = new double[size];
+			double[] paths = new double[size];			// The amount of shortest paths from the source, as a double since it grows fast
+			double[] dependency = new double[size];
+			int[] order = new int[size];				// The settled Nodes, closest first
+			IndexedHeap heap = new IndexedHeap(size);
+			for (int v = 0; v < size; v++) {
+				distance[v] = Double.POSITIVE_INFINITY;
+			}
+			for (int i = from; i < to; i++) {
+				int source = sources[i];
+				int count = 0;
+				distance[source] = 0.0;
+				paths[source] = 1.0;
+				heap.push(source, 0.0);
+				while (!heap.isEmpty()) {
+					int u = heap.pop();
+					order[count++] = u;
+					for (int e = graph.edgesStart(u); e < graph.edgesEnd(u); e++) {
+						int v = graph.getTarget(e);
+						double newDistance = distance[u] + graph.getWeight(e);
+						if (newDistance < distance[v]) {
+							distance[v] = newDistance;
+							paths[v] = paths[u];
+							heap.pushOrDecrease(v, newDistance);
+						}
+						else if (newDistance == distance[v] && v != source && heap.contains(v)) {
+							paths[v] += paths[u];			// Another shortest path to v, as long as v is not settled
+						}
+					}
+				}
+				for (int k = count - 1; k >= 0; k--) {		// Farthest first: every Node passes its dependency to its predecessors
+					int w = order[k];
+					for (int e = reverseGraph.edgesStart(w); e < reverseGraph.edgesEnd(w); e++) {
+						int v = reverseGraph.getTarget(e);
+						if (v != w && distance[v] + reverseGraph.getWeight(e) == distance[w] && paths[w] > 0) {
+							dependency[v] += paths[v] / paths[w] * (1.0 + dependency[w]);
+						}
+					}
+					if (w != source) {
+						total[w] += dependency[w];
+					}
+				}
+				for (int k = 0; k < count; k++) {			// Only the settled Nodes have to be reset
+					int w = order[k];
+					distance[w] = Double.POSITIVE_INFINITY;
+					paths[w] = 0.0;
+					dependency[w] = 0.0;
+				}
+			}
+			return total;
+		}
+
+		// The largest distance from every Node to the sources of this task
+		private double[] farthest() {
+			double[] bound = new double[graph.size()];
+			for (int i = from; i < to; i++) {
+				ShortestPathTree tree = reverseGraph.shortestPathTree(sources[i]);
+				for (int k = 0; k < tree.size(); k++) {
+					int v = tree.getId(k);
+					if (tree.getDistance(k) > bound[v]) {
+						bound[v] = tree.getDistance(k);
+					}
+				}
+			}
+			return bound;
+		}
+	}
+}
@@ -0,0 +1,393 @@
+/* This class loads a large street network from a text file in one go, instead of one addNode/addEdge call per street.
+ * The file has one item per line, the first character says what the line is:
+ *   c ...                      a comment
+ *   p <nodes> <edges>          the amount of Nodes (optional, then it follows from the labels or the highest id)
+ *   v <label>                  the label of the next Node, the first v line is Node 0 (optional, otherwise the labels are the ids)
+ *   a <from> <to> <weight>     an Edge from one Node id to another
+ *   u <from> <to> <weight>     an undirected Edge, i.e. an Edge in both directions
+ * The file is mapped into memory (FileChannel.map) and cut in chunks which are parsed in parallel (fork-join).
+ * A chunk starts at the first line which begins inside it. Numbers are parsed straight from the bytes, so apart
+ * from the labels nothing is allocated per line. The Edges of all chunks are then put in compressed sparse row
+ * form with a counting sort on their start, which keeps the order of the file; an Edge which occurs twice is
+ * only kept the first time, as Graph does. Files must be smaller than 2 GB (the limit of one mapping).
+ * Ids must fit in an int and weights must be finite and at least 0, as all the searches assume.
+ * Author: Seppe Lampe
+ */
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class GraphLoader {
+	private static final int CHUNK_SIZE = 1 << 20;				// Bytes parsed by one task
+
+	// Load a file into a FrozenGraph, returns null if the file cannot be read or is not valid
+	public static FrozenGraph load(String fileName) {									//O(file size/cores + V + E)
+		MappedByteBuffer data;
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "r"); FileChannel channel = file.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				System.out.println("The file is too large to be mapped at once.");
+				return null;
+			}
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		catch (IOException e) {
+			System.out.println(String.format("The file %s could not be read: %s", fileName, e.getMessage()));
+			return null;
+		}
+		int size = data.limit();
+		int chunkCount = Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		Chunk[] chunks = new Chunk[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			chunks[i] = new Chunk(data, (int) ((long) size * i / chunkCount), (int) ((long) size * (i + 1) / chunkCount));
+		}
+		ForkJoinPool.commonPool().invoke(new ParseTask(chunks, 0, chunkCount));
+		return build(chunks);
+	}
+
+	// Load a file into a Graph which can still be changed afterwards, null if the file cannot be read or is not valid
+	public static Graph loadGraph(String fileName) {
+		FrozenGraph frozen = load(fileName);
+		if (frozen == null) {
+			return null;
+		}
+		return new Graph(frozen);
+	}
+
+	// Put the Nodes and Edges of all chunks together, in the order of the file
+	private static FrozenGraph build(Chunk[] chunks) {									//O(V+E)
+		int declared = -1;
+		int labelCount = 0;
+		int edgeCount = 0;
+		int highest = -1;
+		for (int i = 0; i < chunks.length; i++) {
+			Chunk chunk = chunks[i];
+			if (chunk.error != null) {
+				System.out.println(chunk.error);
+				return null;
+			}
+			if (chunk.declaredNodes != -1) {
+				declared = chunk.declaredNodes;
+			}
+			labelCount += chunk.labelCount;
+			edgeCount += chunk.edgeCount;
+			if (chunk.highestId > highest) {
+				highest = chunk.highestId;
+			}
+		}
+		int size = declared != -1 ? declared : (labelCount > 0 ? labelCount : highest + 1);
+		if (highest >= size || (labelCount > 0 && labelCount != size)) {
+			System.out.println("The amount of nodes does not match the node ids and labels in the file.");
+			return null;
+		}
+		SymbolTable symbols = new SymbolTable(size);
+		for (int i = 0; i < chunks.length; i++) {
+			for (int j = 0; j < chunks[i].labelCount; j++) {
+				if (symbols.find(chunks[i].labels[j]) != -1) {
+					System.out.println(String.format("The label %s occurs twice.", chunks[i].labels[j]));
+					return null;
+				}
+				symbols.add(chunks[i].labels[j]);
+			}
+		}
+		for (int id = symbols.size(); id < size; id++) {
+			symbols.add(id);
+		}
+		int[] offsets = new int[size + 1];
+		for (int i = 0; i < chunks.length; i++) {
+			for (int e = 0; e < chunks[i].edgeCount; e++) {
+				offsets[chunks[i].from[e] + 1]++;
+			}
+		}
+		for (int v = 0; v < size; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		int[] position = new int[size];
+		for (int v = 0; v < size; v++) {
+			position[v] = offsets[v];
+		}
+		int[] targets = new int[edgeCount];
+		double[] weights = new double[edgeCount];
+		for (int i = 0; i < chunks.length; i++) {
+			Chunk chunk = chunks[i];
+			for (int e = 0; e < chunk.edgeCount; e++) {
+				int slot = position[chunk.from[e]]++;
+				targets[slot] = chunk.to[e];
+				weights[slot] = chunk.weight[e];
+			}
+			chunks[i] = null;
+		}
+		int[] lastSeen = new int[size];							// Remove the second occurrence of an Edge
+		for (int v = 0; v < size; v++) {
+			lastSeen[v] = -1;
+		}
+		int kept = 0;
+		for (int v = 0; v < size; v++) {
+			int start = offsets[v];
+			offsets[v] = kept;
+			for (int e = start; e < offsets[v + 1]; e++) {
+				if (lastSeen[targets[e]] != v) {
+					lastSeen[targets[e]] = v;
+					targets[kept] = targets[e];
+					weights[kept] = weights[e];
+					kept++;
+				}
+			}
+		}
+		offsets[size] = kept;
+		if (kept < edgeCount) {
+			int[] keptTargets = new int[kept];
+			double[] keptWeights = new double[kept];
+			for (int e = 0; e < kept; e++) {
+				keptTargets[e] = targets[e];
+				keptWeights[e] = weights[e];
+			}
+			targets = keptTargets;
+			weights = keptWeights;
+		}
+		return new FrozenGraph(symbols, offsets, targets, weights);
+	}
+
+	// Parses a range of chunks, splitting it over several tasks
+	private static class ParseTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private Chunk[] chunks;
+		private int from;
+		private int to;
+
+		public ParseTask(Chunk[] chunks, int from, int to) {
+			this.chunks = chunks;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ParseTask(chunks, from, middle), new ParseTask(chunks, middle, to));
+				return;
+			}
+			chunks[from].parse();
+		}
+	}
+
+	// The lines which begin in one part of the file and what was found on them
+	private static class Chunk {
+		private MappedByteBuffer data;
+		private int start;
+		private int end;
+		private int position;
+
+		private int declaredNodes = -1;
+		private Comparable[] labels = new Comparable[16];
+		private int labelCount = 0;
+		private int[] from = new int[64];
+		private int[] to = new int[64];
+		private double[] weight = new double[64];
+		private int edgeCount = 0;
+		private int highestId = -1;
+		private String error = null;
+
+		public Chunk(MappedByteBuffer data, int start, int end) {
+			this.data = data;
+			this.start = start;
+			this.end = end;
+		}
+
+		public void parse() {
+			int limit = data.limit();
+			position = start;
+			if (position > 0 && data.get(position - 1) != '\n') {	// The line which is cut belongs to the previous chunk
+				skipLine(limit);
+			}
+			while (position < end && error == null) {
+				byte type = data.get(position++);
+				if (type == '\n') {							// An empty line
+					continue;
+				}
+				if (type == 'a' || type == 'u') {
+					int u = parseInt(limit);
+					int v = parseInt(limit);
+					double w = parseDouble(limit);
+					if (error == null && !(w >= 0 && w < Double.POSITIVE_INFINITY)) {	// Also catches NaN
+						error = String.format("The weight %s before byte %d is not a finite number of at least 0.", w, position);
+					}
+					if (error != null) {
+						break;
+					}
+					addEdge(u, v, w);
+					if (type == 'u' && u != v) {
+						addEdge(v, u, w);
+					}
+				}
+				else if (type == 'v') {
+					addLabel(limit);
+				}
+				else if (type == 'p') {
+					declaredNodes = parseInt(limit);
+				}
+				else if (type != 'c' && type != '\r') {
+					error = String.format("Unknown line type '%c' at byte %d.", (char) type, position - 1);
+				}
+				skipLine(limit);
+			}
+		}
+
+		private void skipLine(int limit) {
+			while (position < limit && data.get(position++) != '\n') {
+			}
+		}
+
+		private void skipSpaces(int limit) {
+			while (position < limit && (data.get(position) == ' ' || data.get(position) == '\t')) {
+				position++;
+			}
+		}
+
+		private int parseInt(int limit) {
+			skipSpaces(limit);
+			int result = 0;
+			int digits = 0;
+			while (position < limit && data.get(position) >= '0' && data.get(position) <= '9') {
+				int d = data.get(position) - '0';
+				if (result > (Integer.MAX_VALUE - d) / 10) {
+					error = String.format("The number at byte %d is too large.", position - digits);
+					return 0;
+				}
+				result = result * 10 + d;
+				position++;
+				digits++;
+			}
+			if (digits == 0) {
+				error = String.format("A number was expected at byte %d.", position);
+			}
+			return result;
+		}
+
+		/* Digits, an optional fraction and exponent. While the digits fit in 53 bits and the power of ten is at most
+		   10^22 both are exact doubles and one division rounds correctly; anything else goes to Double.parseDouble. */
+		private double parseDouble(int limit) {
+			skipSpaces(limit);
+			int begin = position;
+			boolean negative = false;
+			if (position < limit && (data.get(position) == '-' || data.get(position) == '+')) {
+				negative = data.get(position++) == '-';
+			}
+			long mantissa = 0;
+			int digits = 0;
+			int scale = 0;
+			boolean exact = true;
+			boolean fraction = false;
+			while (position < limit) {
+				byte b = data.get(position);
+				if (b >= '0' && b <= '9') {
+					if (mantissa < (1L << 53) / 10) {
+						mantissa = mantissa * 10 + (b - '0');
+						if (fraction) {
+							scale--;
+						}
+					}
+					else {
+						exact = false;
+					}
+					digits++;
+				}
+				else if (b == '.' && !fraction) {
+					fraction = true;
+				}
+				else {
+					break;
+				}
+				position++;
+			}
+			if (position < limit && (data.get(position) == 'e' || data.get(position) == 'E')) {
+				exact = false;
+				position++;
+				while (position < limit && data.get(position) != ' ' && data.get(position) != '\t'
+						&& data.get(position) != '\r' && data.get(position) != '\n') {
+					position++;
+				}
+			}
+			if (digits == 0) {
+				error = String.format("A number was expected at byte %d.", begin);
+				return 0;
+			}
+			if (!exact || scale < -22) {
+				byte[] text = new byte[position - begin];
+				for (int i = 0; i < text.length; i++) {
+					text[i] = data.get(begin + i);
+				}
+				try {
+					return Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+				}
+				catch (NumberFormatException e) {
+					error = String.format("A number was expected at byte %d.", begin);
+					return 0;
+				}
+			}
+			double result = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[-scale];
+			return negative ? -result : result;
+		}
+
+		// The rest of the line, without surrounding spaces, as a String
+		private void addLabel(int limit) {
+			skipSpaces(limit);
+			int begin = position;
+			int stop = position;
+			while (stop < limit && data.get(stop) != '\n') {
+				stop++;
+			}
+			int last = stop;
+			while (last > begin && (data.get(last - 1) == '\r' || data.get(last - 1) == ' ' || data.get(last - 1) == '\t')) {
+				last--;
+			}
+			byte[] text = new byte[last - begin];
+			for (int i = 0; i < text.length; i++) {
+				text[i] = data.get(begin + i);
+			}
+			if (labelCount == labels.length) {
+				Comparable[] larger = new Comparable[labelCount * 2];
+				for (int i = 0; i < labelCount; i++) {
+					larger[i] = labels[i];
+				}
+				labels = larger;
+			}
+			labels[labelCount++] = new String(text, StandardCharsets.UTF_8);
+			position = stop;
+		}
+
+		private void addEdge(int u, int v, double w) {
+			if (edgeCount == from.length) {
+				int[] moreFrom = new int[edgeCount * 2];
+				int[] moreTo = new int[edgeCount * 2];
+				double[] moreWeight = new double[edgeCount * 2];
+				for (int i = 0; i < edgeCount; i++) {
+					moreFrom[i] = from[i];
+					moreTo[i] = to[i];
+					moreWeight[i] = weight[i];
+				}
+				from = moreFrom;
+				to = moreTo;
+				weight = moreWeight;
+			}
+			from[edgeCount] = u;
+			to[edgeCount] = v;
+			weight[edgeCount] = w;
+			edgeCount++;
+			if (u > highestId) {
+				highestId = u;
+			}
+			if (v > highestId) {
+				highestId = v;
+			}
+		}
+	}
+
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+}
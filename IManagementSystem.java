@@ -45,6 +45,16 @@ public interface IManagementSystem {
 	 */
 	public int addNewApartment(String street, int bedrooms, int bathrooms, int price, boolean lift, int apartmentFloor,	int buildingFloors);
 
+	/*
+	 * Remove a property (house or apartment) from the management system, e.g. when
+	 * it is sold, together with the visits requested for it
+	 *
+	 * @param buildingId ID of the property that is removed
+	 *
+	 * @return false if there is no property with this ID
+	 */
+	public boolean removeBuilding(int buildingId);
+
 	/*
 	 * Add a new client with given parameters - name, email address to the
 	 * management system
@@ -69,6 +79,16 @@ public interface IManagementSystem {
 	 */
 	public int addVIPClient(String name, String emailAddress);
 
+	/*
+	 * Remove a client (regular or VIP) from the management system. Visits the client
+	 * requested before are kept, new requests of the client are refused
+	 *
+	 * @param clientId ID of the client that is removed
+	 *
+	 * @return false if there is no client with this ID
+	 */
+	public boolean removeClient(int clientId);
+
 	/*
 	 * Search for a place based on the price range. Print all the found properties.
 	 *
@@ -98,6 +118,48 @@ public interface IManagementSystem {
 	 */
 	public void searchOnDistance(String street, double radius);
 
+	/*
+	 * Search for the k places closest to a street along the streets. Print the found
+	 * properties, closest first.
+	 *
+	 * @param street is the starting point for the search
+	 * 
+	 * @param k number of places that is searched for
+	 *
+	 * @return the found places (house or apartment), closest first
+	 */
+	public Vector searchNearest(String street, int k);
+
+	/*
+	 * Search for the k places closest to a street along the streets, with a maximal
+	 * price and a minimum number of bedrooms. Print the found properties, closest first.
+	 *
+	 * @param street is the starting point for the search
+	 * 
+	 * @param k number of places that is searched for
+	 * 
+	 * @param maxPrice maximal price of a place (house or apartment)
+	 * 
+	 * @param minBedrooms minimum of bedrooms in the house or apartment
+	 *
+	 * @return the found places (house or apartment), closest first
+	 */
+	public Vector searchNearest(String street, int k, int maxPrice, int minBedrooms);
+
+	/*
+	 * Search for the k places closest to a point, starting from the street closest
+	 * to it in a straight line. Print the found properties, closest first.
+	 *
+	 * @param latitude latitude of the point in degrees
+	 * 
+	 * @param longitude longitude of the point in degrees
+	 * 
+	 * @param k number of places that is searched for
+	 *
+	 * @return the found places (house or apartment), closest first
+	 */
+	public Vector searchNearest(double latitude, double longitude, int k);
+
 	/*
 	 * Request a visit of selected property (house or apartment)
 	 *
@@ -145,6 +207,18 @@ public interface IManagementSystem {
 	 * 
 	 */
 	public void addStreet(String streetName);
+
+	/*
+	 * Adds a street with its coordinates into the system
+	 *
+	 * @param streetName name of the street that is added to the system
+	 * 
+	 * @param latitude latitude of the street in degrees
+	 * 
+	 * @param longitude longitude of the street in degrees
+	 * 
+	 */
+	public void addStreet(String streetName, double latitude, double longitude);
 	
 	/*
 	 * Adds connection between streets into the system
@@ -157,5 +231,17 @@ public interface IManagementSystem {
 	 * 
 	 */
 	public void connectStreets(String street1, String street2, double distance);
+
+	/*
+	 * Changes the distance of a connection between streets in the system
+	 *
+	 * @param street1 name of the first street of the connection
+	 * 
+	 * @param street2 name of the second street of the connection
+	 * 
+	 * @param distance is the new distance between the streets
+	 * 
+	 */
+	public void updateStreetDistance(String street1, String street2, double distance);
 }
 
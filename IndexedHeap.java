@@ -0,0 +1,138 @@
+/* This class is a binary min-heap of integer ids (0 up to capacity - 1) ordered by a double key.
+ * Next to the heap itself it stores the position of every id inside the heap. This makes it possible to
+ * lower the key of an id that is already in the heap (decreaseKey) in O(log(n)) instead of pushing it twice.
+ * This is exactly what Dijkstra's algorithm needs: each Node of a Graph is in the heap at most once.
+ * Author: Seppe Lampe
+ */
+public class IndexedHeap {
+	private int[] heap;								// heap[i] is the id stored at position i of the heap
+	private int[] position;							// position[id] is the index of id in the heap, -1 if absent
+	private double[] keys;							// keys[id] is the key of id
+	private int count;
+
+	public IndexedHeap(int capacity) {
+		heap = new int[capacity];
+		position = new int[capacity];
+		keys = new double[capacity];
+		count = 0;
+		for (int i = 0; i < capacity; i++) {
+			position[i] = -1;
+		}
+	}
+
+	// Returns the amount of ids in the heap
+	public int size() {													//O(1)
+		return count;
+	}
+
+	// Returns whether the heap is empty
+	public boolean isEmpty() {											//O(1)
+		return count == 0;
+	}
+
+	// Returns whether a certain id is in the heap
+	public boolean contains(int id) {									//O(1)
+		return position[id] != -1;
+	}
+
+	// Returns the key of an id in the heap
+	public double getKey(int id) {										//O(1)
+		return keys[id];
+	}
+
+	// Adds an id with a certain key to the heap
+	public void push(int id, double key) {								//O(log(n))
+		keys[id] = key;
+		heap[count] = id;
+		position[id] = count;
+		count++;
+		siftUp(count - 1);
+	}
+
+	// Lowers the key of an id which is already in the heap
+	public void decreaseKey(int id, double key) {						//O(log(n))
+		keys[id] = key;
+		siftUp(position[id]);
+	}
+
+	// Adds the id if it is absent, otherwise lowers its key if the new key is smaller
+	public void pushOrDecrease(int id, double key) {					//O(log(n))
+		if (position[id] == -1) {
+			push(id, key);
+		}
+		else if (key < keys[id]) {
+			decreaseKey(id, key);
+		}
+	}
+
+	// Returns the id with the smallest key
+	public int top() {													//O(1)
+		return heap[0];
+	}
+
+	// Returns the smallest key in the heap
+	public double topKey() {											//O(1)
+		return keys[heap[0]];
+	}
+
+	// Removes the id with the smallest key and returns it
+	public int pop() {													//O(log(n))
+		int result = heap[0];
+		count--;
+		position[result] = -1;
+		if (count > 0) {
+			heap[0] = heap[count];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+		return result;
+	}
+
+	// Empties the heap, only the ids still in the heap have to be reset
+	public void clear() {												//O(n)
+		for (int i = 0; i < count; i++) {
+			position[heap[i]] = -1;
+		}
+		count = 0;
+	}
+
+	// Moves the element at position i up until its parent is smaller
+	private void siftUp(int i) {										//O(log(n))
+		int id = heap[i];
+		double key = keys[id];
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (keys[heap[parent]] <= key) {
+				break;
+			}
+			heap[i] = heap[parent];
+			position[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+
+	// Moves the element at position i down until both its children are larger
+	private void siftDown(int i) {										//O(log(n))
+		int id = heap[i];
+		double key = keys[id];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= count) {
+				break;
+			}
+			if (child + 1 < count && keys[heap[child + 1]] < keys[heap[child]]) {
+				child++;
+			}
+			if (key <= keys[heap[child]]) {
+				break;
+			}
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+}
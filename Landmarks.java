@@ -0,0 +1,101 @@
+/* This class holds the precomputed distances to and from a small set of landmark Nodes of a FrozenGraph.
+ * With the triangle inequality these distances give a lower bound for the distance between any two Nodes:
+ * d(x, y) >= d(L, y) - d(L, x) and d(x, y) >= d(x, L) - d(y, L) for every landmark L.
+ * The point-to-point search of FrozenGraph uses these bounds to steer towards its target (A*, landmarks and
+ * triangle inequality, ALT) so it settles far fewer Nodes than a search which spreads out in every direction.
+ * The landmarks are picked far apart: each new landmark is the Node farthest from the ones already picked.
+ * The distances are stored per Node, so the bounds of one Node are read from consecutive positions.
+ * Author: Seppe Lampe
+ */
+public class Landmarks {
+	private FrozenGraph graph;
+	private int[] landmarks;
+	private double[] from;						// from[v * count + i] is the distance from landmark i to Node v
+	private double[] to;						// to[v * count + i] is the distance from Node v to landmark i
+	private int count;
+
+	public Landmarks(FrozenGraph graph, int count) {									//O(count*(V+E)*log(V))
+		int size = graph.size();
+		if (count > size) {
+			count = size;
+		}
+		this.graph = graph;
+		this.count = count;
+		landmarks = new int[count];
+		from = new double[size * count];
+		to = new double[size * count];
+		double[] closest = new double[size];		// The distance from the closest landmark picked so far
+		for (int v = 0; v < size; v++) {
+			closest[v] = Double.POSITIVE_INFINITY;
+		}
+		int next = 0;
+		if (size > 0) {								// Start from the Node farthest from Node 0
+			ShortestPathTree start = graph.shortestPathTree(0);
+			next = start.getId(start.size() - 1);
+		}
+		for (int i = 0; i < count; i++) {
+			landmarks[i] = next;
+			ShortestPathTree forward = graph.shortestPathTree(next);
+			ShortestPathTree backward = graph.reverse().shortestPathTree(next);
+			for (int v = 0; v < size; v++) {
+				from[v * count + i] = forward.distance[v];
+				to[v * count + i] = backward.distance[v];
+				if (forward.distance[v] < closest[v]) {
+					closest[v] = forward.distance[v];
+				}
+			}
+			for (int v = 0; v < size; v++) {		// Nodes which cannot be reached from any landmark go first
+				if (closest[v] > closest[next]) {
+					next = v;
+				}
+			}
+		}
+	}
+
+	// Return the FrozenGraph for which the landmarks were computed
+	public FrozenGraph getGraph() {														//O(1)
+		return graph;
+	}
+
+	// Return the amount of landmarks
+	public int size() {																	//O(1)
+		return count;
+	}
+
+	// Return the id of the i-th landmark
+	public int getLandmark(int i) {														//O(1)
+		return landmarks[i];
+	}
+
+	/* Return a lower bound for the distance from Node x to Node y.
+	 * Double.POSITIVE_INFINITY means that the landmarks prove there is no path from x to y.
+	 * For a fixed x or a fixed y the bound is consistent, which A* needs to settle each Node only once. */
+	public double lowerBound(int x, int y) {											//O(count)
+		double best = 0;
+		int xi = x * count;
+		int yi = y * count;
+		for (int i = 0; i < count; i++) {
+			double toX = from[xi + i];
+			if (toX != Double.POSITIVE_INFINITY) {		// The landmark reaches x, if it does not reach y then neither does x
+				double toY = from[yi + i];
+				if (toY == Double.POSITIVE_INFINITY) {
+					return Double.POSITIVE_INFINITY;
+				}
+				if (toY - toX > best) {
+					best = toY - toX;
+				}
+			}
+			double fromY = to[yi + i];
+			if (fromY != Double.POSITIVE_INFINITY) {	// y reaches the landmark, if x does not then x cannot reach y
+				double fromX = to[xi + i];
+				if (fromX == Double.POSITIVE_INFINITY) {
+					return Double.POSITIVE_INFINITY;
+				}
+				if (fromX - fromY > best) {
+					best = fromX - fromY;
+				}
+			}
+		}
+		return best;
+	}
+}
@@ -1,73 +1,307 @@
 /* This class is used to implement a Real Estate Management System.
  * It uses a wide range of supporting classes to keep track of real estate, clients, requests for visits,
  * organising visits and various search options.
+ * With CONCURRENT_INDEXES many threads may use one ManagementSystem at the same time: every index is a lock-free
+ * ConcurrentSkipList and the ids and counts are atomic. The buildings of a street are then a copy-on-write list
+ * which is read without a lock, and the requests for a building are only guarded by the lock of that building's
+ * entry, so no thread ever waits for a thread working on another street or building. With the other index kinds
+ * the system is meant for one thread and none of these locks and copies are made.
  * Author: Seppe Lampe
  */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class ManagementSystem implements IManagementSystem {
-	private RedBlackTree buildings;
-	private RedBlackTree clients;
+	private Tree buildings;
+	private Tree clients;
 	private Graph map;
-	private int normalCount;
-	private int vipCount;
-	private int houseCount;
-	private int apartmentCount;
-	private DictionaryTree visitRequests;
+	private DistanceOracle distances;				// Caches the shortest paths from the streets which are asked for the most
+	private AtomicInteger normalCount;
+	private AtomicInteger vipCount;
+	private AtomicInteger houseCount;
+	private AtomicInteger apartmentCount;
+	private AtomicInteger lastBuildingId;		// Ids are never reused, also not after a building or client was removed
+	private AtomicInteger lastClientId;
+	private Tree visitRequests;					// The requested visits of every building, see BuildingVisits
+	private Tree streetIndex;					// The buildings of every street, see StreetBuildings
+	private Tree priceIndex;					// The buildings once more, ordered on price (see PriceKey)
+	private int indexes;						// The kind of Tree used for the indexes, one of the constants below
+	public static final int RED_BLACK_INDEXES = 0;		// For one thread and frequent updates
+	public static final int B_PLUS_INDEXES = 1;			// For large amounts of buildings and clients, see BPlusTree
+	public static final int CONCURRENT_INDEXES = 2;		// For many threads at the same time, see ConcurrentSkipList
+	private static final int BOTTLENECK_SAMPLES = 256;	// The amount of streets from which paths are counted by printBottleneckStreets
+	private static final int POINT_SEARCHES = 4;		// Up to this amount of candidate streets with buildings, searchOnDistance searches each of them
 	/* I doubted a long time to include a PriorityTwoQueue to each building in the RealEstate class.
 	 * This is somewhat more practical for requesting the visits but is more heavy on organising the visits.
-	 * However I finally decided to implement it here as a DictionaryTree storing the buildingIds as keys 
-	 * with the PriorityTwoQueues as values since I believe that keeping track of requested visits belongs
+	 * However I finally decided to implement it here as an index storing the buildingIds
+	 * with their PriorityTwoQueues (see BuildingVisits) since I believe that keeping track of requested visits belongs
 	 * to/ is a property of a Real Estate Management System and not to a class representing a building.
 	 */
 	
 	public ManagementSystem()	
 	{
+		this(RED_BLACK_INDEXES);
+	}
+	
+	/* With B_PLUS_INDEXES every index is a BPlusTree instead of a RedBlackTree. For a large amount of buildings 
+	   and clients a search visits far fewer nodes in a BPlusTree and the searches on price walk along its leaves.
+	   With CONCURRENT_INDEXES every index is a ConcurrentSkipList, so many threads can use the system at once. */
+	public ManagementSystem(int indexes)	
+	{
+		this.indexes = indexes;
+		normalCount = new AtomicInteger(0);
+		vipCount = new AtomicInteger(0);
+		houseCount = new AtomicInteger(0);
+		apartmentCount = new AtomicInteger(0);
+		lastBuildingId = new AtomicInteger(0);
+		lastClientId = new AtomicInteger(0);
 		/* Every added type of real estate (house or apartment) will be added in a RedBlackTree.
 		   In a real-world scenario this Tree will be updated and searched frequently, resulting in
 		   the choice of a RedBalckTree above a normal BST or AVLTree. The same argumentation was
 		   used for the client Tree. */
-		buildings = new RedBlackTree();			
-		clients = new RedBlackTree();				
+		buildings = newIndex();			
+		clients = newIndex();				
 		map = new Graph();
-		/* Each requested visit will be stored in this Dictionary.
-		   The keys of the DictionaryPairs will be buildingIds while the values will be PriorityTwoQueues 
-		   storing the client names*/
-		visitRequests = new DictionaryTree();
+		distances = new DistanceOracle(map, 64);
+		/* Each requested visit will be stored in this index, ordered on buildingId.
+		   Every building has a PriorityTwoQueue storing the client names. */
+		visitRequests = newIndex();
+		/* The buildings are also indexed on their street, this way a search around a certain point only
+		   needs the streets close to it and not every building in the system. */
+		streetIndex = newIndex();
+		/* And on their price, so a search on price only visits the buildings in the price range. */
+		priceIndex = newIndex();
+	}
+	
+	// An empty index of the kind chosen in the constructor
+	private Tree newIndex() {															//O(1)
+		if (indexes == B_PLUS_INDEXES) {
+			return new BPlusTree();
+		}
+		if (indexes == CONCURRENT_INDEXES) {
+			return new ConcurrentSkipList();
+		}
+		return new RedBlackTree();
+	}
+	
+	// Adds an element to an index unless it has an equal one, returns that equal element (null if there was none)
+	private Comparable insertIfAbsent(Tree index, Comparable element) {					//O(log(n))
+		if (indexes == CONCURRENT_INDEXES) {
+			return ((ConcurrentSkipList) index).insertIfAbsent(element);
+		}
+		Comparable existing = index.find(element);
+		if (existing == null) {
+			index.insert(element);
+		}
+		return existing;
+	}
+	
+	/* A building as an element of the priceIndex: ordered on price, buildings with the same price on id.
+	   A PriceKey with an id of Integer.MIN_VALUE or Integer.MAX_VALUE marks the start or end of a price. */
+	private class PriceKey implements Comparable {
+		private int price;
+		private int id;
+		private RealEstate building;
+		
+		public PriceKey(int price, int id, RealEstate building) {
+			this.price = price;
+			this.id = id;
+			this.building = building;
+		}
+		
+		public PriceKey(RealEstate building) {
+			this(building.getPrice(), building.getId(), building);
+		}
+		
+		public int compareTo(Object o) {														//O(1)
+			PriceKey other = (PriceKey) o;
+			if (price != other.price) {
+				return price < other.price ? -1 : 1;
+			}
+			return id < other.id ? -1 : (id == other.id ? 0 : 1);
+		}
+	}
+	
+	/* The buildings of one street as an element of the streetIndex, ordered on the street name.
+	   With CONCURRENT_INDEXES every change copies the list of buildings, so a search reads a snapshot of it without
+	   a lock while other threads add and remove buildings of the same street. A street stays in the index once it had a building. */
+	private class StreetBuildings implements Comparable {
+		private String street;
+		private List buildings;
+		
+		public StreetBuildings(String street) {
+			this.street = street;
+			buildings = indexes == CONCURRENT_INDEXES ? new CopyOnWriteArrayList() : new ArrayList();
+		}
+		
+		// The buildings in the street at this moment, changes afterwards do not affect it
+		public Object[] snapshot() {															//O(b)
+			return buildings.toArray();
+		}
+		
+		public int compareTo(Object o) {														//O(1)
+			return street.compareTo(((StreetBuildings) o).street);
+		}
+	}
+	
+	/* The requested visits of one building as an element of the visitRequests, ordered on the building id.
+	   With CONCURRENT_INDEXES its requests are only read and changed while holding its own lock. An entry only leaves
+	   the visitRequests through close, also under its lock, so a thread which holds the lock of an open entry knows it is in the index. */
+	private class BuildingVisits implements Comparable {
+		private int buildingId;
+		private PriorityTwoQueue requests;
+		private boolean closed;						// Removed from the visitRequests, requests may no longer be added
+		
+		public BuildingVisits(int buildingId) {
+			this.buildingId = buildingId;
+			requests = new PriorityTwoQueue();
+			closed = false;
+		}
+		
+		// Removes this entry with its requests from the visitRequests, only the first call does something
+		public void close() {																	//O(log(n))
+			if (indexes == CONCURRENT_INDEXES) {
+				synchronized (this) {
+					remove();
+				}
+			}
+			else {
+				remove();
+			}
+		}
+		
+		private void remove() {
+			if (!closed) {
+				closed = true;
+				visitRequests.delete(this);
+			}
+		}
+		
+		public int compareTo(Object o) {														//O(1)
+			int other = ((BuildingVisits) o).buildingId;
+			return buildingId < other ? -1 : (buildingId == other ? 0 : 1);
+		}
 	}
 
 	/* Adds a new House to the database. Requires a street name, the amount of bedrooms,
 	   the amount of bathrooms and the price as in input. */
 	public int addNewHouse(String street, int bedrooms, int bathrooms, int price) {											//O(log(n))									
-		houseCount++;
-		buildings.insert(new House(street, bedrooms, bathrooms, price, houseCount+apartmentCount));
-		return houseCount+apartmentCount;
+		houseCount.incrementAndGet();
+		int id = lastBuildingId.incrementAndGet();
+		House house = new House(street, bedrooms, bathrooms, price, id);
+		priceIndex.insert(new PriceKey(house));
+		addToStreetIndex(house);
+		buildings.append(house);								// Last, so a building can only be found once it is in every index. Ids only go up, see Tree.append
+		return id;
 	}
 	
 	/* Adds a new Apartment to the database. Requires a street name, the amount of bedrooms,
 	   the amount of bathrooms and the price as in input. As well as a boolean indicating
 	   the presence of an elevator, the floor the apartment is on and the total amount of floors in the building */
 	public int addNewApartment(String street, int bedrooms, int bathrooms, int price, boolean lift, int apartmentFloor, int buildingFloors) {		
-		apartmentCount++;																						//O(log(n))
-		buildings.insert(new Apartment(street, bedrooms, bathrooms, price, lift, apartmentFloor, buildingFloors, houseCount+apartmentCount));
-		return houseCount+apartmentCount;
+		apartmentCount.incrementAndGet();																		//O(log(n))
+		int id = lastBuildingId.incrementAndGet();
+		Apartment apartment = new Apartment(street, bedrooms, bathrooms, price, lift, apartmentFloor, buildingFloors, id);
+		priceIndex.insert(new PriceKey(apartment));
+		addToStreetIndex(apartment);
+		buildings.append(apartment);
+		return id;
+	}
+	
+	// Adds a building to the list of buildings of its street, the first building of a street adds the street
+	private void addToStreetIndex(RealEstate building) {														//O(log(s) + b), b the buildings in the street
+		StreetBuildings street = new StreetBuildings(building.getStreet());
+		StreetBuildings existing = (StreetBuildings) insertIfAbsent(streetIndex, street);
+		if (existing != null) {
+			street = existing;
+		}
+		street.buildings.add(building);
+	}
+	
+	// Removes a building from the list of buildings of its street
+	private void removeFromStreetIndex(RealEstate building) {													//O(log(s) + b), b the buildings in the street
+		StreetBuildings street = (StreetBuildings) streetIndex.find(new StreetBuildings(building.getStreet()));
+		if (street != null) {
+			street.buildings.remove(building);
+		}
+	}
+	
+	// Returns the buildings of a street, an empty array if it has none
+	private Object[] buildingsInStreet(Comparable street) {														//O(log(s) + b), b the buildings in the street
+		StreetBuildings buildings = (StreetBuildings) streetIndex.find(new StreetBuildings((String) street));
+		if (buildings == null) {
+			return new Object[0];
+		}
+		return buildings.snapshot();
+	}
+	
+	/* Removes a building from the database, e.g. when it is sold, together with its requested visits.
+	   Returns false if there is no building with this id. */
+	public boolean removeBuilding(int buildingId) {																//O(log(n) + b), b the buildings in its street
+		RealEstate building = (RealEstate) buildings.find(new RealEstate("", 0, 0, 0, buildingId));
+		if (building == null) {
+			System.out.println(String.format("There is no building with id %d.", buildingId));
+			return false;
+		}
+		if (buildings.delete(building) == null) {				// Another thread removed it first
+			return false;
+		}
+		priceIndex.delete(new PriceKey(building));
+		if (building.getClass() == House.class) {
+			houseCount.decrementAndGet();
+		}
+		else {
+			apartmentCount.decrementAndGet();
+		}
+		removeFromStreetIndex(building);
+		BuildingVisits visits = (BuildingVisits) visitRequests.find(new BuildingVisits(buildingId));
+		if (visits != null) {
+			visits.close();
+		}
+		return true;
 	}
 	
 	// Adds a regular client to the database. Needs a name and email-address as input
 	public int addRegularClient(String name, String emailAddress) {												//O(log(n))
-		normalCount++;
-		clients.insert(new Client(name, emailAddress, normalCount+vipCount, false));
-		return normalCount+vipCount;
+		normalCount.incrementAndGet();
+		int id = lastClientId.incrementAndGet();
+		clients.append(new Client(name, emailAddress, id, false));
+		return id;
 	}
 	
 	// Adds a VIP client to the database. Needs a name and email-address as input
 	public int addVIPClient(String name, String emailAddress) {													//O(log(n))
-		vipCount++;
-		clients.insert(new Client(name, emailAddress, normalCount+vipCount, true));
-		return normalCount+vipCount;
+		vipCount.incrementAndGet();
+		int id = lastClientId.incrementAndGet();
+		clients.append(new Client(name, emailAddress, id, true));
+		return id;
+	}
+	
+	/* Removes a client from the database. Visits the client requested before stay in the queues of the buildings,
+	   as only the names are kept there; new requests of the client are refused. Returns false if there is no client with this id. */
+	public boolean removeClient(int clientId) {																	//O(log(n))
+		Client client = (Client) clients.find(new Client("", "", clientId, false));
+		if (client == null) {
+			System.out.println(String.format("There is no client with id %d.", clientId));
+			return false;
+		}
+		if (clients.delete(client) == null) {					// Another thread removed it first
+			return false;
+		}
+		if (client.getVip()) {
+			vipCount.decrementAndGet();
+		}
+		else {
+			normalCount.decrementAndGet();
+		}
+		return true;
 	}
 	
 	// Prints all the houses in the database
 	public void printHouses() {																					//O(n)
-		System.out.println(String.format("The %d houses in the system are:", houseCount));
+		System.out.println(String.format("The %d houses in the system are:", houseCount.get()));
 		buildings.traverseInOrder(new TreeAction()
 		{
 			public void run(Tree.TreeNode n)	{
@@ -79,7 +313,7 @@ public class ManagementSystem implements IManagementSystem {
 	
 	// Prints all the apartments in the database
 	public void printApartments() {																				//O(n)
-		System.out.println(String.format("The %d apartments in the system are:", apartmentCount));
+		System.out.println(String.format("The %d apartments in the system are:", apartmentCount.get()));
 		buildings.traverseInOrder(new TreeAction() {
 			public void run(Tree.TreeNode n) {
 				if(n.getValue().getClass() == Apartment.class)
@@ -90,7 +324,7 @@ public class ManagementSystem implements IManagementSystem {
 	
 	// Prints all the regular clients in the database
 	public void printRegularClients() {																			//O(n)
-		System.out.println(String.format("The %d regular clients in the system are:", normalCount));
+		System.out.println(String.format("The %d regular clients in the system are:", normalCount.get()));
 		clients.traverseInOrder(new TreeAction() {
 			public void run(Tree.TreeNode n)	{
 				if(((Client)n.getValue()).getVip() == false)
@@ -101,7 +335,7 @@ public class ManagementSystem implements IManagementSystem {
 	
 	// Prints all the VIP clients in the database
 	public void printVIPClient() {																				//O(n)
-		System.out.println(String.format("The %d VIP clients in the system are:", vipCount));
+		System.out.println(String.format("The %d VIP clients in the system are:", vipCount.get()));
 		clients.traverseInOrder(new TreeAction() {
 			public void run(Tree.TreeNode n)	{
 				if(((Client)n.getValue()).getVip() == true)
@@ -110,71 +344,395 @@ public class ManagementSystem implements IManagementSystem {
 		});
 	}
 
-	// Searches for real estate in a given price range.
-	public void searchOnPrice(int minPrice, int maxPrice) {														//O(n)
+	// Searches for real estate in a given price range, cheapest first.
+	// Only the buildings in the range are visited in the priceIndex, k is their amount.
+	public void searchOnPrice(int minPrice, int maxPrice) {														//O(log(n) + k)
 		System.out.println(String.format("The properties within the price range of %d - %d are:", minPrice, maxPrice));
-		buildings.traverseInOrder(new TreeAction() {
+		priceIndex.traverseRange(new PriceKey(minPrice, Integer.MIN_VALUE, null), new PriceKey(maxPrice, Integer.MAX_VALUE, null), new TreeAction() {
 			public void run(Tree.TreeNode n) {
-				int price = ((RealEstate)n.getValue()).getPrice();
-				if(price >= minPrice && price <= maxPrice) {
-					System.out.println(n.getValue());
-				}
+				System.out.println(((PriceKey)n.getValue()).building);
 			}
 		});
 	}
 	
-	// Searches the database for real estate with a minimum amount of bedrooms but below a certain price.
-	public void searchOnBedroomsAndPrice(int minBedrooms, int maxPrice) {										//O(n)
+	/* Returns one page of the buildings ordered on id: the buildings at positions from ... from + amount - 1.
+	   The first one is found by its position (see Tree.select), from there on the Tree is walked in order. */
+	public Vector listBuildings(int from, int amount) {															//O(log(n) + amount), O(from + amount) with CONCURRENT_INDEXES
+		Vector result = new Vector(Math.max(amount, 1));
+		Comparable first = buildings.select(from);
+		if (first == null) {
+			return result;
+		}
+		Tree.Cursor cursor = buildings.cursor();
+		cursor.seek(first);
+		while (cursor.hasNext() && result.size() < amount) {
+			result.addLast(cursor.next());
+		}
+		return result;
+	}
+	
+	// Returns the amount of buildings in a given price range, without visiting them (except with CONCURRENT_INDEXES).
+	public int countOnPrice(int minPrice, int maxPrice) {														//O(log(n)), O(log(n) + k) with CONCURRENT_INDEXES
+		return priceIndex.countBetween(new PriceKey(minPrice, Integer.MIN_VALUE, null), new PriceKey(maxPrice, Integer.MAX_VALUE, null));
+	}
+	
+	// Searches the database for real estate with a minimum amount of bedrooms but below a certain price, cheapest first.
+	// Only the buildings up to the maximum price are visited in the priceIndex, k is their amount.
+	public void searchOnBedroomsAndPrice(int minBedrooms, int maxPrice) {										//O(log(n) + k)
 		System.out.println(String.format("The properties with at least %d bedrooms and a max price of %d are:", minBedrooms, maxPrice));
-		buildings.traverseInOrder(new TreeAction() {
+		priceIndex.traverseRange(new PriceKey(Integer.MIN_VALUE, Integer.MIN_VALUE, null), new PriceKey(maxPrice, Integer.MAX_VALUE, null), new TreeAction() {
 			public void run(Tree.TreeNode n) {
-				if(((RealEstate)n.getValue()).getPrice() <= maxPrice && ((RealEstate)n.getValue()).getBathrooms() >= minBedrooms)
-					System.out.println(n.getValue());
+				RealEstate building = ((PriceKey)n.getValue()).building;
+				if(building.getBedrooms() >= minBedrooms)
+					System.out.println(building);
 			}
 		});
 	}
 	
-	// Searches for real estate in a given distance from a point.
-	public void searchOnDistance(String street, double radius) {
-		buildings.traverseInOrder(new TreeAction() {
-			public void run(Tree.TreeNode n) {
-				double distance = map.findDistance(street, ((RealEstate) n.getValue()).getStreet());
-				if (distance <= radius && distance >= 0) {
-					System.out.println(n.getValue() + String.format("At a distance of %f", distance));
+	/* Searches for real estate in a given distance from a point.
+	   One search from the given street settles every street within the radius, closest streets first.
+	   The buildings of each of these streets are then looked up in the streetIndex.
+	   When every street has coordinates, the streets which are close enough in a straight line are looked up
+	   first: only those can be within the radius. If none of them has buildings, no search is needed at all; if
+	   at most POINT_SEARCHES of them have buildings, only the distances to those streets are searched (see
+	   searchCandidates). Otherwise the search above is still cheaper than one search per street. */
+	public void searchOnDistance(String street, double radius) {			//O((V'+E')*log(V') + V'*log(s) + k), V' and E' within the radius
+		Vector candidates = map.candidatesWithin(street, radius);
+		if (candidates != null) {
+			Vector withBuildings = new Vector(POINT_SEARCHES + 1);
+			for (int i = 0; i < candidates.size() && withBuildings.size() <= POINT_SEARCHES; i++) {
+				if (buildingsInStreet(candidates.get(i)).length > 0) {
+					withBuildings.addLast(candidates.get(i));
+				}
+			}
+			if (withBuildings.size() <= POINT_SEARCHES) {
+				searchCandidates(street, radius, withBuildings);
+				return;
+			}
+		}
+		ShortestPathTree neighbourhood = map.shortestPathTree(street, radius);
+		if (neighbourhood == null) {
+			return;
+		}
+		for (int i = 0; i < neighbourhood.size(); i++) {
+			Object[] streetBuildings = buildingsInStreet(neighbourhood.getLabel(i));
+			for (int j = 0; j < streetBuildings.length; j++) {
+				System.out.println(streetBuildings[j] + String.format("At a distance of %f", neighbourhood.getDistance(i)));
+			}
+		}
+	}
+	
+	/* Prints the buildings of a few streets which are within the radius of a street, closest streets first.
+	   Every distance is a point-to-point search steered by the coordinates (see Graph.distancesTo). */
+	private void searchCandidates(String street, double radius, Vector streets) {						//O(n*(A* search) + n^2), n streets given
+		double[] distances = map.distancesTo(street, streets);
+		int[] order = new int[distances.length];
+		int count = 0;
+		for (int i = 0; i < distances.length; i++) {					// Insertion sort on distance, there are only a few
+			if (distances[i] == -1 || distances[i] > radius) {
+				continue;
+			}
+			int j = count++;
+			while (j > 0 && distances[order[j - 1]] > distances[i]) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = i;
+		}
+		for (int i = 0; i < count; i++) {
+			Object[] streetBuildings = buildingsInStreet(streets.get(order[i]));
+			for (int j = 0; j < streetBuildings.length; j++) {
+				System.out.println(streetBuildings[j] + String.format("At a distance of %f", distances[order[i]]));
+			}
+		}
+	}
+	
+	/* Keeps the k best buildings offered to it: the closest ones, on equal distance the cheapest ones.
+	   It is a max-heap on (distance, price, id), so the worst of the k buildings is on top and can be replaced in O(log(k)). */
+	private class NearestBuildings {
+		private RealEstate[] buildings;
+		private double[] distances;
+		private int count;
+
+		public NearestBuildings(int k) {
+			buildings = new RealEstate[k];
+			distances = new double[k];
+			count = 0;
+		}
+
+		public boolean isFull() {													//O(1)
+			return count == buildings.length;
+		}
+
+		// The distance of the worst building kept, only meaningful when the heap is not empty
+		public double worstDistance() {												//O(1)
+			return distances[0];
+		}
+
+		// Keep a building if there is still room or if it is better than the worst building kept
+		public void offer(RealEstate building, double distance) {					//O(log(k))
+			if (!isFull()) {
+				buildings[count] = building;
+				distances[count] = distance;
+				count++;
+				siftUp(count - 1);
+			}
+			else if (worse(buildings[0], distances[0], building, distance)) {
+				buildings[0] = building;
+				distances[0] = distance;
+				siftDown(0);
+			}
+		}
+
+		// Empty the heap into a Vector, closest building first. Their distances are written in sortedDistances
+		public Vector toVector(double[] sortedDistances) {							//O(k*log(k))
+			RealEstate[] sorted = new RealEstate[count];
+			for (int i = count - 1; i >= 0; i--) {
+				sorted[i] = buildings[0];
+				sortedDistances[i] = distances[0];
+				count--;
+				buildings[0] = buildings[count];
+				distances[0] = distances[count];
+				siftDown(0);
+			}
+			Vector result = new Vector(Math.max(sorted.length, 1));
+			for (int i = 0; i < sorted.length; i++) {
+				result.addLast(sorted[i]);
+			}
+			return result;
+		}
+
+		private boolean worse(RealEstate a, double distanceA, RealEstate b, double distanceB) {
+			if (distanceA != distanceB) {
+				return distanceA > distanceB;
+			}
+			if (a.getPrice() != b.getPrice()) {
+				return a.getPrice() > b.getPrice();
+			}
+			return a.getId() > b.getId();
+		}
+
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (!worse(buildings[i], distances[i], buildings[parent], distances[parent])) {
+					break;
+				}
+				swap(i, parent);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int i) {
+			while (2 * i + 1 < count) {
+				int child = 2 * i + 1;
+				if (child + 1 < count && worse(buildings[child + 1], distances[child + 1], buildings[child], distances[child])) {
+					child++;
+				}
+				if (!worse(buildings[child], distances[child], buildings[i], distances[i])) {
+					break;
+				}
+				swap(i, child);
+				i = child;
+			}
+		}
+
+		private void swap(int i, int j) {
+			RealEstate building = buildings[i];
+			buildings[i] = buildings[j];
+			buildings[j] = building;
+			double distance = distances[i];
+			distances[i] = distances[j];
+			distances[j] = distance;
+		}
+	}
+
+	// Searches for the k buildings closest to a street, see below
+	public Vector searchNearest(String street, int k) {										//O((V'+E')*log(V') + V'*log(s) + b*log(k))
+		return searchNearest(street, k, Integer.MAX_VALUE, 0);
+	}
+
+	// Searches for the k buildings closest to a point (in degrees), from the street closest to it in a straight line
+	public Vector searchNearest(double latitude, double longitude, int k) {					//O(cells near the point) + searchNearest(street, k)
+		Comparable street = map.nearestNode(latitude, longitude);
+		if (street == null) {
+			System.out.println("No street has coordinates.");
+			return new Vector(1);
+		}
+		return searchNearest((String) street, k);
+	}
+
+	/* Searches for the k buildings closest to a street with a price of at most maxPrice and at least minBedrooms
+	   bedrooms, prints them closest first and returns them in a Vector.
+	   The streets are visited in order of their distance (see FrozenGraph.expand) and the matching buildings of
+	   each street are offered to a heap which keeps the k best ones. Since the streets come closest first, the
+	   search stops at the first street further away than the worst building in a full heap: nothing from there
+	   on can beat it. Only the streets up to the k-th matching building are visited, no radius has to be guessed.
+	   V' and E' are the streets and connections visited, b the buildings on them and s the amount of streets. */
+	public Vector searchNearest(String street, int k, int maxPrice, int minBedrooms) {		//O((V'+E')*log(V') + V'*log(s) + b*log(k))
+		FrozenGraph snapshot = map.freeze();
+		int source = snapshot.findId(street);
+		if (source == -1) {
+			System.out.println(String.format("%s is not in the graph.", street));
+			return new Vector(1);
+		}
+		k = Math.min(k, houseCount.get() + apartmentCount.get());			// There can not be more results than buildings
+		if (k < 1) {
+			return new Vector(1);
+		}
+		NearestBuildings nearest = new NearestBuildings(k);
+		snapshot.expand(source, new SearchAction() {
+			public boolean run(int id, double distance) {
+				if (nearest.isFull() && distance > nearest.worstDistance()) {
+					return false;
 				}
+				Object[] streetBuildings = buildingsInStreet(snapshot.getLabel(id));
+				for (int i = 0; i < streetBuildings.length; i++) {
+					RealEstate building = (RealEstate) streetBuildings[i];
+					if (building.getPrice() <= maxPrice && building.getBedrooms() >= minBedrooms) {
+						nearest.offer(building, distance);
+					}
+				}
+				return true;
 			}
 		});
+		double[] resultDistances = new double[k];
+		Vector result = nearest.toVector(resultDistances);
+		System.out.println(String.format("The %d closest properties to %s are:", result.size(), street));
+		for (int i = 0; i < result.size(); i++) {
+			System.out.println(result.get(i) + String.format("At a distance of %f", resultDistances[i]));
+		}
+		return result;
+	}
+	
+	/* Prints the districts of the map: groups of streets which are connected to each other but not to any
+	   street of another group. More than one district means some streets can not be reached from others. */
+	public void printDistricts() {																				//O(V+E*alpha(V))
+		FrozenGraph snapshot = map.freeze();
+		GraphAnalytics analytics = new GraphAnalytics(snapshot);
+		int[] district = analytics.components();
+		int[] sizes = analytics.componentSizes();
+		System.out.println(String.format("The %d streets form %d district(s):", snapshot.size(), sizes.length));
+		for (int d = 0; d < sizes.length; d++) {
+			Vector streets = new Vector(Math.max(sizes[d], 1));
+			for (int id = 0; id < district.length; id++) {
+				if (district[id] == d) {
+					streets.addLast(snapshot.getLabel(id));
+				}
+			}
+			System.out.println(String.format("District %d (%d streets): %s", d + 1, sizes[d], streets));
+		}
+	}
+	
+	/* Prints the streets through which the most shortest paths between other streets pass (betweenness centrality).
+	   On large maps the paths from a sample of BOTTLENECK_SAMPLES streets are counted instead of from all streets. */
+	public void printBottleneckStreets(int count) {																//O(samples*(V+E)*log(V)/cores)
+		FrozenGraph snapshot = map.freeze();
+		double[] centrality = new GraphAnalytics(snapshot).betweenness(BOTTLENECK_SAMPLES, 0);
+		IndexedHeap order = new IndexedHeap(snapshot.size());
+		for (int id = 0; id < snapshot.size(); id++) {
+			order.push(id, -centrality[id]);
+		}
+		count = Math.min(count, snapshot.size());
+		System.out.println(String.format("The %d streets with the most shortest paths through them are:", count));
+		for (int i = 0; i < count; i++) {
+			int id = order.pop();
+			System.out.println(String.format("%s: %.1f", snapshot.getLabel(id), centrality[id]));
+		}
 	}
 	
-	// Stores a request for a visit to a certain building under the name of certain client
+	/* Stores a request for a visit to a certain building under the name of certain client.
+	   With CONCURRENT_INDEXES the building is checked while holding the lock of its entry in the visitRequests:
+	   removeBuilding closes that entry after removing the building, so a request is either refused or removed
+	   together with the building. An entry which organizeVisits closed in the meantime is replaced by a new one. */
 	public void requestVisit(int buildingId, int clientId) {	//O(log(n))
 		Client client = (Client)(clients.find(new Client("", "", clientId, false)));  	//Find the client
-		PriorityTwoQueue propertyRequests = (PriorityTwoQueue) visitRequests.findValue(buildingId);
-		if (propertyRequests == null) {
-			propertyRequests = new PriorityTwoQueue();
-			visitRequests.add(buildingId, propertyRequests);
+		if (client == null) {
+			System.out.println(String.format("There is no client with id %d.", clientId));
+			return;
 		}
-		propertyRequests.push(client.getName(), client.getVip());
+		while (true) {
+			BuildingVisits visits = new BuildingVisits(buildingId);
+			BuildingVisits existing = (BuildingVisits) insertIfAbsent(visitRequests, visits);
+			if (existing != null) {
+				visits = existing;
+			}
+			boolean done;
+			if (indexes == CONCURRENT_INDEXES) {
+				synchronized (visits) {
+					done = addRequest(visits, client);
+				}
+			}
+			else {
+				done = addRequest(visits, client);
+			}
+			if (done) {
+				return;
+			}
+		}
+	}
+	
+	// Adds the request of a client to an entry of the visitRequests, false if the entry was closed and has to be replaced
+	private boolean addRequest(BuildingVisits visits, Client client) {							//O(log(n))
+		if (buildings.find(new RealEstate("", 0, 0, 0, visits.buildingId)) == null) {
+			visits.close();							// Do not leave an entry behind for a building which is gone
+			System.out.println(String.format("There is no building with id %d.", visits.buildingId));
+			return true;
+		}
+		if (visits.closed) {
+			return false;
+		}
+		visits.requests.push(client.getName(), client.getVip());
+		return true;
 	}
 	
 	/* Organises visits for buildings which have at least 5 requests.
-	   Visits are organised in groups of five and VIP clients get priority above regular clients. */
+	   Visits are organised in groups of five and VIP clients get priority above regular clients.
+	   Buildings whose requests were all served are removed from the visitRequests. A ConcurrentSkipList can be
+	   changed during its traversal, so with CONCURRENT_INDEXES each building is organised and removed while holding
+	   the lock of its entry only; the other indexes remove the served buildings after the traversal. */
 	public void organizeVisits() {			//O(n*log(n))
 		System.out.println("The organized visits are: ");
+		Vector served = new Vector(8);
 		visitRequests.traverseInOrder(new TreeAction() {  	//Traverse through each building in the tree
 			public void run(Tree.TreeNode n)	{
-				PriorityTwoQueue requests = (PriorityTwoQueue) ((DictionaryTree.DictionaryPair)n.getValue()).getValue();
-				if(requests.size() > 4)	{
-					System.out.println(buildings.find(new RealEstate("", 0, 0, 0, (int) ((DictionaryTree.DictionaryPair)n.getValue()).getKey())));											//Print the building																	
-					int groupnumber = 1;
-					while(requests.size() > 4) {	// We will keep organising visits for 5 people as long as there are more than 4 people remaining who have requested a visit
-						System.out.println(String.format("Group %d: %s, %s, %s, %s and %s.", groupnumber, requests.pop(), requests.pop(), requests.pop(), requests.pop(), requests.pop()));
-						groupnumber += 1;
+				BuildingVisits visits = (BuildingVisits) n.getValue();
+				if (indexes == CONCURRENT_INDEXES) {
+					synchronized (visits) {
+						if (organize(visits)) {
+							visits.close();
+						}
 					}
-					System.out.println();
+				}
+				else if (organize(visits)) {
+					served.addLast(visits);
 				}
 			}
 		});
+		for (int i = 0; i < served.size(); i++) {
+			((BuildingVisits) served.get(i)).close();
+		}
+	}
+	
+	// Prints the groups of five visitors of one building, returns true if all its requests were served
+	private boolean organize(BuildingVisits visits) {
+		PriorityTwoQueue requests = visits.requests;
+		if(visits.closed || requests.size() <= 4)	{
+			return false;
+		}
+		System.out.println(buildings.find(new RealEstate("", 0, 0, 0, visits.buildingId)));											//Print the building																	
+		int groupnumber = 1;
+		while(requests.size() > 4) {	// We will keep organising visits for 5 people as long as there are more than 4 people remaining who have requested a visit
+			System.out.println(String.format("Group %d: %s, %s, %s, %s and %s.", groupnumber, requests.pop(), requests.pop(), requests.pop(), requests.pop(), requests.pop()));
+			groupnumber += 1;
+		}
+		System.out.println();
+		return requests.size() == 0;
+	}
+	
+	// Returns the distance between two streets, -1 if they are not connected
+	public double findDistance(String street1, String street2) {		//O(1) on average if street1 was asked before, O((V+E)*log(V)) otherwise
+		return distances.findDistance(street1, street2);
 	}
 	
 	// Adds a street to the database
@@ -182,9 +740,21 @@ public class ManagementSystem implements IManagementSystem {
 		map.addNode(streetName);
 	}
 	
+	/* Adds a street with its coordinates (latitude and longitude in degrees) to the database.
+	   Once every street has coordinates they speed up the searches on distance (see searchOnDistance). */
+	public void addStreet (String streetName, double latitude, double longitude) {
+		map.addNode(streetName, latitude, longitude);
+	}
+	
 	// Adds a connection between two streets to the database, takes a third parameter for distance between the two points.
 	public void connectStreets(String street1, String street2, double distance) {
 		map.addUndirectedEdge(street1, street2, distance);
 	}
+	
+	/* Changes the distance of the connection between two streets, e.g. for roadworks or a new speed limit.
+	   The cached distances are repaired on their next use instead of being computed again. */
+	public void updateStreetDistance(String street1, String street2, double distance) {
+		map.updateUndirectedEdgeWeight(street1, street2, distance);
+	}
 
 }
\ No newline at end of file
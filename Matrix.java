@@ -1,48 +1,211 @@
-/* This class represents an n*n Matrix.
- * Each node of the matrix has a Vector containing all the information of that node in relation to other nodes.
- * This method is quite memory-heavy since for 10 nodes, no matter how many edges, it will consist of 10 Vectors of length 10.
+/* This class represents an n*n Matrix of doubles.
+ * The elements are stored in one array of primitive doubles, so an element costs 8 bytes and reading it unboxes nothing.
+ * The array is cut in square tiles of TILE*TILE elements. Each tile is stored as one block (row by row) and
+ * the tiles follow each other row by row. A Matrix of at most TILE rows is one tile of exactly its own size,
+ * i.e. plain row by row storage, so a small Matrix is not padded to a whole tile. A product of two Matrices works tile by tile, so the three tiles it
+ * works on fit in the cache of the processor. The tiles of the result are spread over all cores (fork-join).
+ * Two products are supported: the ordinary product and the min-plus product, where multiplying becomes adding
+ * and adding becomes taking the minimum. A min-plus product of distance Matrices gives the shortest distances
+ * over one extra step, see MatrixGraph.
  * Author: Seppe Lampe
  */
-public class Matrix 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class Matrix
 {
-	private Vector data;
+	protected static final int TILE = 64;						// 64*64 doubles: three tiles fit in the cache of one core
+	private static final int PARALLEL_TILES = 4;				// Below this amount of tiles a product stays on one thread
+
+	protected double[] data;
+	protected int tile;											// The amount of rows (and columns) of one tile, TILE or less for a small Matrix
+	protected int tileCount;									// The amount of tiles in one row of tiles
 	private int nrNodes;
-	
+
 	public Matrix(int nrNodes)
+	{
+		this(nrNodes, 0);											//Set every element to 0
+	}
+
+	public Matrix(int nrNodes, double initial)					//O(n^2)
 	{
 		this.nrNodes = nrNodes;
-		data = new Vector(nrNodes*nrNodes);									// allocate an N-by-N matrix where N = nrNodes
-		for(int i=0; i<nrNodes; i++) {							//O(n)
-			for(int x=0; x<nrNodes; x++) {
-				data.set(i*nrNodes+x, 0);									//Set every element to 0 instead of null
+		tile = Math.max(1, Math.min(TILE, nrNodes));
+		tileCount = (nrNodes + tile - 1) / tile;
+		data = new double[tileCount * tileCount * tile * tile];		// allocate an N-by-N matrix, rounded up to whole tiles
+		if (initial != 0) {
+			for (int i = 0; i < data.length; i++) {
+				data[i] = initial;
 			}
 		}
 	}
-	
-	public void set(int row, int col, Comparable weight)		//O(1)
+
+	// Return the amount of rows (and columns)
+	public int size()											//O(1)
 	{
-		data.set(row*nrNodes + col, weight); 								// store the weight at the given row and column.
+		return nrNodes;
 	}
 
-	public Comparable get(int row, int col)						//O(1)
+	// Return the position in the array of the element at a row and column
+	protected int index(int row, int col)						//O(1)
 	{
-		return data.get(row*nrNodes + col);									// return the weight at the given row and column.
+		return ((row / tile) * tileCount + col / tile) * tile * tile + (row % tile) * tile + col % tile;
 	}
-	
+
+	// Return the position in the array of the first element of a tile
+	protected int tileStart(int tileRow, int tileCol)			//O(1)
+	{
+		return (tileRow * tileCount + tileCol) * tile * tile;
+	}
+
+	public void set(int row, int col, double weight)			//O(1)
+	{
+		data[index(row, col)] = weight; 							// store the weight at the given row and column.
+	}
+
+	public double get(int row, int col)							//O(1)
+	{
+		return data[index(row, col)];								// return the weight at the given row and column.
+	}
+
+	// Return a copy of the Matrix
+	public Matrix copy()										//O(n^2)
+	{
+		Matrix result = new Matrix(nrNodes);
+		for (int i = 0; i < data.length; i++) {
+			result.data[i] = data[i];
+		}
+		return result;
+	}
+
+	// Return the ordinary product of this Matrix and another one, null if their sizes differ
+	public Matrix multiply(Matrix other)						//O(n^3/cores)
+	{
+		return product(other, false);
+	}
+
+	// Return the min-plus product: result[i][j] is the minimum over k of this[i][k] + other[k][j], null if the sizes differ
+	public Matrix minPlus(Matrix other)							//O(n^3/cores)
+	{
+		return product(other, true);
+	}
+
+	private Matrix product(Matrix other, boolean minPlus)
+	{
+		if (other.nrNodes != nrNodes) {
+			System.out.println("The matrices do not have the same size.");
+			return null;
+		}
+		Matrix result = new Matrix(nrNodes, minPlus ? Double.POSITIVE_INFINITY : 0);
+		run(new ProductTask(this, other, result, minPlus, 0, tileCount * tileCount));
+		return result;
+	}
+
+	// Run a task on the shared fork-join pool
+	protected static void run(RecursiveAction task)
+	{
+		ForkJoinPool.commonPool().invoke(task);
+	}
+
+	// Computes the tiles of a product of two Matrices, the tiles with numbers from..to-1 (row of tiles by row of tiles)
+	private static class ProductTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private Matrix left;
+		private Matrix right;
+		private Matrix result;
+		private boolean minPlus;
+		private int from;
+		private int to;
+
+		public ProductTask(Matrix left, Matrix right, Matrix result, boolean minPlus, int from, int to) {
+			this.left = left;
+			this.right = right;
+			this.result = result;
+			this.minPlus = minPlus;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from >= PARALLEL_TILES) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ProductTask(left, right, result, minPlus, from, middle), new ProductTask(left, right, result, minPlus, middle, to));
+				return;
+			}
+			int count = result.tileCount;
+			int edge = result.tile;
+			for (int tile = from; tile < to; tile++) {
+				int row = tile / count;
+				int col = tile % count;
+				int target = result.tileStart(row, col);
+				for (int k = 0; k < count; k++) {
+					int depth = Math.min(edge, result.nrNodes - k * edge);		// The padding of the last tiles is left out
+					if (minPlus) {
+						minPlusTile(result.data, target, left.data, left.tileStart(row, k), right.data, right.tileStart(k, col), edge, depth);
+					}
+					else {
+						multiplyTile(result.data, target, left.data, left.tileStart(row, k), right.data, right.tileStart(k, col), edge, depth);
+					}
+				}
+			}
+		}
+	}
+
+	/* c += a * b for three tiles of tile*tile elements, over the first 'depth' columns of a and rows of b.
+	   The innermost loop runs over consecutive elements so the JIT can use vector instructions. */
+	protected static void multiplyTile(double[] c, int cStart, double[] a, int aStart, double[] b, int bStart, int tile, int depth)	//O(tile^3)
+	{
+		for (int i = 0; i < tile; i++) {
+			int cRow = cStart + i * tile;
+			for (int k = 0; k < depth; k++) {
+				double aik = a[aStart + i * tile + k];
+				if (aik == 0) {
+					continue;
+				}
+				int bRow = bStart + k * tile;
+				for (int j = 0; j < tile; j++) {
+					c[cRow + j] += aik * b[bRow + j];
+				}
+			}
+		}
+	}
+
+	/* c = min(c, a (min-plus) b) for three tiles of tile*tile elements, over the first 'depth' columns of a and rows of b. The loop over k is
+	   the outermost one, so c may be the same tile as a or b: that is exactly one step of Floyd-Warshall on the tile (see MatrixGraph). */
+	protected static void minPlusTile(double[] c, int cStart, double[] a, int aStart, double[] b, int bStart, int tile, int depth)	//O(tile^3)
+	{
+		for (int k = 0; k < depth; k++) {
+			int bRow = bStart + k * tile;
+			for (int i = 0; i < tile; i++) {
+				double aik = a[aStart + i * tile + k];
+				if (aik == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				int cRow = cStart + i * tile;
+				for (int j = 0; j < tile; j++) {
+					double through = aik + b[bRow + j];
+					if (through < c[cRow + j]) {
+						c[cRow + j] = through;
+					}
+				}
+			}
+		}
+	}
+
 	// Return a String notation of the matrix
-	public String toString() {									//O(n)
+	public String toString() {									//O(n^2)
 		String result = new String();
 		for(int i=0; i<nrNodes; i++) {
 			for(int x=0; x<nrNodes; x++) {
-				result += data.get(i*nrNodes+x).toString() + " ";
+				result += get(i, x) + " ";
 			}
 			result += "    ";
 		}
 		return result;
 	}
-	
-	public void print() {										//O(n)
+
+	public void print() {										//O(n^2)
 		System.out.println(this.toString());
 	}
-	
-}
\ No newline at end of file
+
+}
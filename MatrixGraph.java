@@ -1,26 +1,119 @@
 /* This class represents a graph via an n*n Matrix.
- * Each Node of the Graph has a Vector containing all the information of that node in relation to other nodes.
- * This method is quite memory-heavy since for 10 nodes, no matter how many edges, it will consist of 10 Vectors of length 10.
+ * Element [from][to] of the Matrix holds the weight of the edge from one node to another, Double.POSITIVE_INFINITY if there is none.
+ * Since the Matrix stores primitive doubles, 10 nodes cost 100 doubles no matter how many edges there are (a Matrix
+ * of at most Matrix.TILE nodes is not padded).
+ * This is meant for small, dense districts where the distances between all pairs of nodes are wanted at once.
+ * Those are computed with Floyd-Warshall, cut in tiles (see Matrix): for every diagonal tile the tile itself is
+ * closed first, then the tiles in its row and column, then all other tiles. Within the last two steps the tiles
+ * do not depend on each other, so they are spread over all cores.
  * Author: Seppe Lampe
  */
-public class MatrixGraph 
+import java.util.concurrent.RecursiveAction;
+
+public class MatrixGraph
 {
 	private Matrix data;
-	
+
 	public MatrixGraph(int nrNodes)
 	{
-		data = new Matrix(nrNodes);
+		data = new Matrix(nrNodes, Double.POSITIVE_INFINITY);
 	}
-	
+
+	// Return the amount of nodes
+	public int size()
+	{
+		return data.size();
+	}
+
 	// Adds an edge from a certain node to another node, with a certain weight to the Matrix.
 	public void addEdge(int from, int to, double w)
 	{
 		data.set(from, to, w);
 	}
-	
-	// Retrieves the information of an edge between two nodes in the Matrix.
+
+	// Retrieves the information of an edge between two nodes in the Matrix, 0 if there is no edge.
 	public double getEdge(int from, int to)
 	{
-		return (Double)data.get(from, to);
+		double weight = data.get(from, to);
+		if (weight == Double.POSITIVE_INFINITY) {
+			return 0;
+		}
+		return weight;
+	}
+
+	public boolean hasEdge(int from, int to)
+	{
+		return data.get(from, to) != Double.POSITIVE_INFINITY;
+	}
+
+	/* Return a Matrix with the shortest distance between every pair of nodes, Double.POSITIVE_INFINITY if there is no path.
+	   The weights may be negative as long as there is no cycle with a negative total weight. */
+	public Matrix allPairsDistances()																//O(n^3/cores)
+	{
+		Matrix result = data.copy();
+		int tile = result.tile;
+		int padded = result.tileCount * tile;
+		for (int i = 0; i < padded; i++) {				// Also the padding rows, so every diagonal tile has zeros on its diagonal
+			result.set(i, i, 0);
+		}
+		int count = result.tileCount;
+		for (int k = 0; k < count; k++) {
+			int diagonal = result.tileStart(k, k);
+			Matrix.minPlusTile(result.data, diagonal, result.data, diagonal, result.data, diagonal, tile, tile);
+			Matrix.run(new FloydTask(result, k, true, 0, 2 * count));
+			Matrix.run(new FloydTask(result, k, false, 0, count * count));
+		}
+		return result;
+	}
+
+	// Updates the tiles of one step of the tiled Floyd-Warshall: the tiles in row and column k, or all other tiles
+	private static class FloydTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private Matrix distances;
+		private int k;
+		private boolean cross;						// true for the tiles in row and column k, false for the others
+		private int from;
+		private int to;
+
+		public FloydTask(Matrix distances, int k, boolean cross, int from, int to) {
+			this.distances = distances;
+			this.k = k;
+			this.cross = cross;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from >= 4) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new FloydTask(distances, k, cross, from, middle), new FloydTask(distances, k, cross, middle, to));
+				return;
+			}
+			int count = distances.tileCount;
+			int edge = distances.tile;
+			double[] d = distances.data;
+			int diagonal = distances.tileStart(k, k);
+			for (int t = from; t < to; t++) {
+				if (cross) {
+					if (t < count) {						// Tile (k, t) in the row of the diagonal tile
+						if (t != k) {
+							int tile = distances.tileStart(k, t);
+							Matrix.minPlusTile(d, tile, d, diagonal, d, tile, edge, edge);
+						}
+					}
+					else if (t - count != k) {				// Tile (t - count, k) in its column
+						int tile = distances.tileStart(t - count, k);
+						Matrix.minPlusTile(d, tile, d, tile, d, diagonal, edge, edge);
+					}
+				}
+				else {
+					int row = t / count;
+					int col = t % count;
+					if (row != k && col != k) {
+						Matrix.minPlusTile(d, distances.tileStart(row, col), d, distances.tileStart(row, k), d, distances.tileStart(k, col), edge, edge);
+					}
+				}
+			}
+		}
 	}
-}
\ No newline at end of file
+}
@@ -72,32 +72,61 @@ public class RedBlackTree extends Tree{
 
 	}
 	
+	// Walks down from the root with a loop and one comparison per level, see Tree
 	public void insert(Comparable element) { // O(log(n))
-		insertAtNode(element, (RedBlackTreeNode) root, null);
+		RedBlackTreeNode parent = null;
+		RedBlackTreeNode current = (RedBlackTreeNode) root;
+		int comparison = 0;
+		while (current != null) {
+			comparison = element.compareTo(current.value);
+			if (comparison == 0) {
+				System.out.println("Element is already in tree."); 							// if the element is already in the tree, what to do?
+				return;
+			}
+			parent = current;
+			current = comparison < 0 ? current.getLeftNode() : current.getRightNode();	// smaller goes left, bigger goes right
+		}
+		RedBlackTreeNode newNode = new RedBlackTreeNode(element);
+		if (parent == null) { 															// we actually have an empty tree
+			root = newNode;
+		} 
+		else {
+			if (comparison < 0) { 														// the last comparison tells the side
+				parent.setLeftNode(newNode);
+			} 
+			else {
+				parent.setRightNode(newNode);
+			}
+			for (RedBlackTreeNode p = parent; p != null; p = p == root ? null : p.getParentNode()) {
+				p.size += 1;													// before balancing: a rotation recomputes sizes from the children
+			}
+		}
+		balance(newNode);															// the new node is red, its parent may be red as well
+		count += 1;
 	}
 	
-	private void insertAtNode(Comparable element, RedBlackTreeNode current, RedBlackTreeNode parent) { 	// O(log(n))
-		if (current == null) { 															// if the node we check is empty
-			RedBlackTreeNode newNode = new RedBlackTreeNode(element);
-			if (parent != null) { 														// the current node is empty, but we have a parent
-				if (element.compareTo(parent.value) < 0) { 								// do we add it to the left?
-					parent.setLeftNode(newNode);
-				} 
-				else {
-					parent.setRightNode(newNode); 										// or do we add it to the right?
-				}
-				balance(parent);
-			} 
-			else { 																		// the current node is empty and it has no parent, we actually have an empty tree
-				root = newNode;
-			}
-			count += 1;
-		} else if (element.compareTo(current.value) == 0) {
-			System.out.println("Element is already in tree."); 							// if the element is already in the tree, what to do?
-		} else if (element.compareTo(current.value) < 0) { 								// if the element is smaller than current, go left
-			insertAtNode(element, current.getLeftNode(), current);
-		} else 																			// if the element is bigger than current, go right
-			insertAtNode(element, current.getRightNode(), current);
+	// Links a new red TreeNode right of the largest TreeNode and balances it like an inserted one, see Tree.append
+	protected void appendAfter(TreeNode last, Comparable element) { // O(log(n))
+		RedBlackTreeNode newNode = new RedBlackTreeNode(element);
+		((RedBlackTreeNode) last).setRightNode(newNode);
+		for (RedBlackTreeNode p = (RedBlackTreeNode) last; p != null; p = p == root ? null : p.getParentNode()) {
+			p.size += 1;
+		}
+		balance(newNode);
+	}
+	
+	/* The TreeNodes of build (see Tree.build) are black, except the TreeNodes on the deepest level which are red.
+	   All empty subtrees are on the deepest two levels, so every path from the root down passes the same amount
+	   of black TreeNodes and a red TreeNode never has a red parent. */
+	protected TreeNode buildNode(Comparable value, TreeNode left, TreeNode right, int depth, int deepest) { // O(1)
+		RedBlackTreeNode n = new RedBlackTreeNode(value);
+		n.setLeftNode((RedBlackTreeNode) left);
+		n.setRightNode((RedBlackTreeNode) right);
+		if (depth < deepest || depth == 0) {
+			n.setColourBlack();
+		}
+		correctSize(n);
+		return n;
 	}
 	
 	private void splayLeft(RedBlackTreeNode n) { // O(1)
@@ -117,6 +146,7 @@ public class RedBlackTree extends Tree{
 		rightTree.setLeftNode(n);		
 		if(n == super.root) {
 			super.root = rightTree;
+			rightTree.setParentNode(null);
 		}
 		// The rightTree now comes at the place where n used to be
 		else {
@@ -127,6 +157,8 @@ public class RedBlackTree extends Tree{
 				parent.setRightNode(rightTree);
 			}
 		}
+		correctSize(n);
+		correctSize(rightTree);
 	}
 
 	private void splayRight(RedBlackTreeNode n) { // Similar to splayLeft but mirrored
@@ -143,7 +175,8 @@ public class RedBlackTree extends Tree{
 		n.setLeftNode(leftTree.getRightNode());	
 		leftTree.setRightNode(n);							  							   				
 		if(n == root) {								
-			root = leftTree;						
+			root = leftTree;
+			leftTree.setParentNode(null);
 		}											
 		else {										
 			if(parent.getRightNode() == n) {		
@@ -153,6 +186,8 @@ public class RedBlackTree extends Tree{
 				parent.setLeftNode(leftTree);
 			}
 		}
+		correctSize(n);
+		correctSize(leftTree);
 	}
 	
 	
@@ -214,4 +249,119 @@ public class RedBlackTree extends Tree{
 		grandparent.setColourRed();	
 	}
 	
+	/* Removes an element from the Tree and returns the removed element, null if it is not in the Tree.
+	   A TreeNode with two children takes the value of its successor, which is removed instead (see Tree).
+	   Removing a red TreeNode changes no black heights. When a black TreeNode is removed, its child takes its
+	   place: a red child is coloured black and all is well, otherwise the path through that place misses one
+	   black TreeNode and deleteBalance restores it. */
+	public Comparable delete(Comparable element) { // O(log(n))
+		TreeNode found = findNode(element, root);
+		if (found == null) {
+			System.out.println("Element is not in tree.");
+			return null;
+		}
+		RedBlackTreeNode n = (RedBlackTreeNode) found;
+		Comparable removed = n.value;
+		if (n.getLeftNode() != null && n.getRightNode() != null) {
+			RedBlackTreeNode successor = n.getRightNode();
+			while (successor.getLeftNode() != null) {
+				successor = successor.getLeftNode();
+			}
+			n.value = successor.value;
+			n = successor;
+		}
+		RedBlackTreeNode child = n.getLeftNode() != null ? n.getLeftNode() : n.getRightNode();
+		RedBlackTreeNode parent = n == root ? null : n.getParentNode();
+		if (parent == null) {
+			root = child;
+			if (child != null) {
+				child.setParentNode(null);
+			}
+		}
+		else if (parent.getLeftNode() == n) {
+			parent.setLeftNode(child);
+		}
+		else {
+			parent.setRightNode(child);
+		}
+		for (RedBlackTreeNode p = parent; p != null; p = p == root ? null : p.getParentNode()) {
+			p.size -= 1;
+		}
+		count -= 1;
+		if (n.isBlack()) {
+			if (child != null && !child.isBlack()) {
+				child.setColourBlack();
+			}
+			else {
+				deleteBalance(child, parent);
+			}
+		}
+		return removed;
+	}
+	
+	/* The paths through n (which may be a leaf, so its parent is passed as well) have one black TreeNode less
+	   than the other paths. Based on the sibling s of n:
+	   - s is red: rotate s above the parent, n now has a black sibling.
+	   - s is black with two black children: colour s red, now the parent misses a black TreeNode. If the parent
+	     is red, colouring it black solves it, otherwise the problem moves up to the parent.
+	   - s is black with a red child on the far side: rotate s above the parent, s takes the colour of the parent
+	     and the parent and the far child become black, which adds a black TreeNode on the side of n.
+	   - s is black with only a red child on the near side: rotate that child above s first, then as above. */
+	private void deleteBalance(RedBlackTreeNode n, RedBlackTreeNode parent) { // O(log(n))
+		while (n != root && (n == null || n.isBlack())) {
+			boolean left = parent.getLeftNode() == n;
+			RedBlackTreeNode sibling = left ? parent.getRightNode() : parent.getLeftNode();
+			if (!sibling.isBlack()) {
+				sibling.setColourBlack();
+				parent.setColourRed();
+				if (left) {
+					splayLeft(parent);
+				}
+				else {
+					splayRight(parent);
+				}
+				sibling = left ? parent.getRightNode() : parent.getLeftNode();
+			}
+			RedBlackTreeNode far = left ? sibling.getRightNode() : sibling.getLeftNode();
+			RedBlackTreeNode near = left ? sibling.getLeftNode() : sibling.getRightNode();
+			if ((far == null || far.isBlack()) && (near == null || near.isBlack())) {
+				sibling.setColourRed();
+				n = parent;
+				parent = n == root ? null : n.getParentNode();
+			}
+			else {
+				if (far == null || far.isBlack()) {
+					near.setColourBlack();
+					sibling.setColourRed();
+					if (left) {
+						splayRight(sibling);
+					}
+					else {
+						splayLeft(sibling);
+					}
+					sibling = near;
+					far = left ? sibling.getRightNode() : sibling.getLeftNode();
+				}
+				if (parent.isBlack()) {
+					sibling.setColourBlack();
+				}
+				else {
+					sibling.setColourRed();
+				}
+				parent.setColourBlack();
+				far.setColourBlack();
+				if (left) {
+					splayLeft(parent);
+				}
+				else {
+					splayRight(parent);
+				}
+				n = (RedBlackTreeNode) root;
+			}
+		}
+		if (n != null) {
+			n.setColourBlack();
+		}
+	}
+	
 }
@@ -0,0 +1,8 @@
+/* This is an abstract class which is used to visit the Nodes of a Graph in order of their distance from a source
+ * and perform actions on each Node (see FrozenGraph.expand). It is often implemented in-line, like TreeAction.
+ * run returns whether the search should go on; returning false stops it before any further Node is settled.
+ * Author: Seppe Lampe
+ */
+public abstract class SearchAction {
+	public abstract boolean run(int id, double distance);
+}
@@ -0,0 +1,125 @@
+/* A SearchContext is the scratch space of one point-to-point search: tentative distances, previous Nodes and heaps
+ * for a forward and a backward search over a Graph of at most a fixed size. Each thread has its own SearchContext per
+ * Graph (see SearchContextPool), so any amount of threads can search the same Graph at the same time.
+ * The arrays are not cleared between searches. Instead every search gets a new generation number and an entry
+ * only counts when its stamp equals the current generation; an entry with an older stamp reads as "not reached".
+ * Starting a search therefore costs O(1) instead of O(V), only the heaps are emptied (O(ids left in them)).
+ * Author: Seppe Lampe
+ */
+public class SearchContext {
+	protected int generation;
+	protected int[] forwardStamp;
+	protected int[] backwardStamp;
+	protected int[] potentialStamp;
+	protected double[] forwardDistance;
+	protected double[] backwardDistance;
+	protected double[] potential;
+	protected int[] forwardPrevious;			// The previous Node on the way from the source
+	protected int[] backwardPrevious;			// The next Node on the way to the target
+	protected IndexedHeap forwardHeap;
+	protected IndexedHeap backwardHeap;
+
+	// Room to collect a path before it is copied into a ShortestPath
+	protected int[] path;
+	protected double[] pathDistance;
+	protected int[] position;					// The position of a Node on the path being collected, -1 if it is not on it
+	protected int[] hops;						// Work space to unpack the shortcuts of a ContractionHierarchy
+	protected int[] stack;
+
+	public SearchContext(int size) {
+		generation = 0;
+		forwardStamp = new int[size];
+		backwardStamp = new int[size];
+		potentialStamp = new int[size];
+		forwardDistance = new double[size];
+		backwardDistance = new double[size];
+		potential = new double[size];
+		forwardPrevious = new int[size];
+		backwardPrevious = new int[size];
+		forwardHeap = new IndexedHeap(size);
+		backwardHeap = new IndexedHeap(size);
+		path = new int[size + 1];
+		pathDistance = new double[size + 1];
+		position = new int[size];
+		hops = new int[size];
+		stack = new int[2 * size + 2];
+		for (int v = 0; v < size; v++) {
+			position[v] = -1;
+		}
+	}
+
+	// Return the largest amount of Nodes a searched Graph may have
+	public int capacity() {																//O(1)
+		return forwardStamp.length;
+	}
+
+	// Start a new search, all entries of the previous search become invalid
+	public void begin() {																//O(ids left in the heaps)
+		generation++;
+		if (generation == Integer.MAX_VALUE) {				// Only after two billion searches: clear the stamps once
+			for (int v = 0; v < forwardStamp.length; v++) {
+				forwardStamp[v] = 0;
+				backwardStamp[v] = 0;
+				potentialStamp[v] = 0;
+			}
+			generation = 1;
+		}
+		forwardHeap.clear();
+		backwardHeap.clear();
+	}
+
+	// Return the distance found by the forward search, Double.POSITIVE_INFINITY if it has not reached the Node
+	public double forward(int v) {														//O(1)
+		return forwardStamp[v] == generation ? forwardDistance[v] : Double.POSITIVE_INFINITY;
+	}
+
+	public double backward(int v) {														//O(1)
+		return backwardStamp[v] == generation ? backwardDistance[v] : Double.POSITIVE_INFINITY;
+	}
+
+	// Return the previous Node found by the forward search, -1 if there is none
+	public int previous(int v) {														//O(1)
+		return forwardStamp[v] == generation ? forwardPrevious[v] : -1;
+	}
+
+	// Return the next Node found by the backward search, -1 if there is none
+	public int next(int v) {															//O(1)
+		return backwardStamp[v] == generation ? backwardPrevious[v] : -1;
+	}
+
+	public void setForward(int v, double distance, int previous) {						//O(1)
+		forwardStamp[v] = generation;
+		forwardDistance[v] = distance;
+		forwardPrevious[v] = previous;
+	}
+
+	public void setBackward(int v, double distance, int next) {							//O(1)
+		backwardStamp[v] = generation;
+		backwardDistance[v] = distance;
+		backwardPrevious[v] = next;
+	}
+
+	// Return whether the potential of a Node was computed during this search
+	public boolean hasPotential(int v) {												//O(1)
+		return potentialStamp[v] == generation;
+	}
+
+	public void setPotential(int v, double value) {										//O(1)
+		potentialStamp[v] = generation;
+		potential[v] = value;
+	}
+
+	/* Copy the path collected in path[0..length-1] into a ShortestPath and clear the positions it used.
+	   When no path was collected (length 0) the result only holds the source. */
+	public ShortestPath toPath(FrozenGraph graph, int source, int length) {			//O(length of the path)
+		if (length == 0) {
+			path[0] = source;
+			pathDistance[0] = 0.0;
+			length = 1;
+		}
+		for (int i = 0; i < length; i++) {
+			position[path[i]] = -1;
+		}
+		return new ShortestPath(graph, source, path, pathDistance, length);
+	}
+}
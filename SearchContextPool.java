@@ -0,0 +1,25 @@
+/* The SearchContexts of the threads which search the FrozenGraphs of one Graph. Every FrozenGraph made by a Graph
+ * (and its reversed copy) uses the pool of that Graph, so a thread keeps one SearchContext per Graph instead of one
+ * per snapshot: the snapshots which are replaced after every change do not each leave O(V) scratch space behind.
+ * One SearchContext can serve several snapshots because of its stamps, an entry of a search on an older snapshot
+ * has an older generation (see SearchContext). When the Graph grows, the SearchContext of a thread is replaced by a
+ * larger one, with room to spare so a Graph which grows one Node at a time does not replace it after every Node.
+ * Author: Seppe Lampe
+ */
+public class SearchContextPool {
+	private final ThreadLocal<SearchContext> contexts;
+
+	public SearchContextPool() {
+		contexts = new ThreadLocal<SearchContext>();
+	}
+
+	// Return the SearchContext of the calling thread, with room for at least size Nodes
+	public SearchContext get(int size) {												//O(1), O(V) when it has to grow
+		SearchContext c = contexts.get();
+		if (c == null || c.capacity() < size) {
+			c = new SearchContext(c == null ? size : Math.max(size, c.capacity() + c.capacity() / 2));
+			contexts.set(c);
+		}
+		return c;
+	}
+}
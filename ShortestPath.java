@@ -0,0 +1,53 @@
+/* A ShortestPath is the result of a point-to-point search: a ShortestPathTree which only holds the Nodes on one path.
+ * Its settled Nodes are the Nodes of the path, from the source to the target, with their distance from the source.
+ * It costs memory in proportion to the length of the path instead of the size of the Graph.
+ * Author: Seppe Lampe
+ */
+public class ShortestPath extends ShortestPathTree {
+	private double[] pathDistance;				// pathDistance[i] is the distance from the source to the i-th Node of the path
+
+	// Copies the first 'length' Nodes of a path and their distances
+	public ShortestPath(FrozenGraph graph, int source, int[] path, double[] pathDistance, int length) {
+		super(graph, source, new int[length], length);
+		this.pathDistance = new double[length];
+		for (int i = 0; i < length; i++) {
+			settled[i] = path[i];
+			this.pathDistance[i] = pathDistance[i];
+		}
+	}
+
+	// Return the position of a Node on the path, -1 if it is not on it
+	private int indexOf(int id) {													//O(length of the path)
+		for (int i = 0; i < settledCount; i++) {
+			if (settled[i] == id) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public boolean hasPathTo(int id) {												//O(length of the path)
+		return id >= 0 && indexOf(id) != -1;
+	}
+
+	public double distanceTo(int id) {												//O(length of the path)
+		int i = id >= 0 ? indexOf(id) : -1;
+		if (i == -1) {
+			return -1;
+		}
+		return pathDistance[i];
+	}
+
+	public Vector pathTo(int id) {													//O(length of the path)
+		int end = id >= 0 ? indexOf(id) : -1;
+		Vector path = new Vector(end + 2);
+		for (int i = 0; i <= end; i++) {
+			path.addLast(graph.getLabel(settled[i]));
+		}
+		return path;
+	}
+
+	public double getDistance(int i) {												//O(1)
+		return pathDistance[i];
+	}
+}
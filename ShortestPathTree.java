@@ -0,0 +1,99 @@
+/* A ShortestPathTree is the result of one single-source search on a FrozenGraph.
+ * For every Node (indexed by its id) it stores the distance from the source and the id of the
+ * previous Node on a shortest path. Distances, connectivity and paths are all read from it.
+ * It also remembers the order in which the Nodes were settled, i.e. sorted on their distance.
+ * Author: Seppe Lampe
+ */
+public class ShortestPathTree {
+	protected FrozenGraph graph;
+	protected int source;
+	protected double[] distance;				// Double.POSITIVE_INFINITY for Nodes which cannot be reached
+	protected int[] previous;					// -1 for the source and for Nodes which cannot be reached
+	protected int[] settled;					// ids of the settled Nodes, in order of their distance
+	protected int settledCount;
+
+	public ShortestPathTree(FrozenGraph graph, int source) {
+		int size = graph.size();
+		this.graph = graph;
+		this.source = source;
+		distance = new double[size];
+		previous = new int[size];
+		settled = new int[size];
+		settledCount = 0;
+		for (int i = 0; i < size; i++) {
+			distance[i] = Double.POSITIVE_INFINITY;
+			previous[i] = -1;
+		}
+	}
+
+	// Used by ShortestPath, which stores its Nodes in the settled list only
+	protected ShortestPathTree(FrozenGraph graph, int source, int[] settled, int settledCount) {
+		this.graph = graph;
+		this.source = source;
+		this.settled = settled;
+		this.settledCount = settledCount;
+	}
+
+	// Return the label of the Node from which this tree was built
+	public Comparable getSource() {													//O(1)
+		return graph.getLabel(source);
+	}
+
+	// Return whether there is a path from the source to the Node with a certain id
+	public boolean hasPathTo(int id) {												//O(1)
+		return id >= 0 && distance[id] != Double.POSITIVE_INFINITY;
+	}
+
+	public boolean hasPathTo(Comparable label) {									//O(1) on average
+		return hasPathTo(graph.findId(label));
+	}
+
+	// Return the shortest distance from the source to the Node with a certain id, -1 if there is no path
+	public double distanceTo(int id) {												//O(1)
+		if (!hasPathTo(id)) {
+			return -1;
+		}
+		return distance[id];
+	}
+
+	public double distanceTo(Comparable label) {									//O(1) on average
+		return distanceTo(graph.findId(label));
+	}
+
+	// Return the labels on the shortest path from the source to a Node, an empty Vector if there is no path
+	public Vector pathTo(int id) {													//O(length of the path)
+		Vector path = new Vector(5);
+		if (!hasPathTo(id)) {
+			return path;
+		}
+		for (; id != -1; id = previous[id]) {
+			path.addLast(graph.getLabel(id));
+		}
+		path.reverse();
+		return path;
+	}
+
+	public Vector pathTo(Comparable label) {										//O(length of the path) on average
+		return pathTo(graph.findId(label));
+	}
+
+	// Return the amount of Nodes settled by the search
+	public int size() {																//O(1)
+		return settledCount;
+	}
+
+	// Return the id of the i-th closest Node to the source
+	public int getId(int i) {														//O(1)
+		return settled[i];
+	}
+
+	// Return the label of the i-th closest Node to the source
+	public Comparable getLabel(int i) {												//O(1)
+		return graph.getLabel(settled[i]);
+	}
+
+	// Return the distance of the i-th closest Node to the source
+	public double getDistance(int i) {												//O(1)
+		return distance[settled[i]];
+	}
+}
@@ -0,0 +1,269 @@
+/* This class stores the geographic coordinates (latitude and longitude in degrees) of Nodes, by id, and finds the
+ * Nodes close to a point by straight-line distance without looking at every Node.
+ * The earth is cut in a grid of cells of CELL_DEGREES by CELL_DEGREES; every located Node is listed in the cell of its
+ * coordinates. The cells are kept in a hash table (open addressing on the cell number), so only cells which hold
+ * Nodes take memory. A radius search only visits the cells overlapping the bounding box of the circle and then
+ * checks the exact great-circle distance (haversine) of the Nodes in them.
+ * Straight-line distances never exceed the length of a road between the same points, so they can rule out
+ * candidates before any search on the Graph (see GeoHeuristic).
+ * Author: Seppe Lampe
+ */
+public class SpatialIndex {
+	public static final double EARTH_RADIUS = 6371.0088;		// Mean radius of the earth in km
+	private static final double CELL_DEGREES = 0.01;			// About 1.1 km from north to south
+	private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS / 180;
+	private static final int COLUMNS = (int) Math.round(360 / CELL_DEGREES);
+
+	private double[] latitude;					// Double.NaN for a Node without coordinates
+	private double[] longitude;
+	private int size;							// The ids 0 ... size - 1 have a place in the arrays
+	private int locatedCount;
+	private long[] cellKeys;					// The hash table of cells: the number of a cell, its Nodes and their amount
+	private int[][] cellNodes;
+	private int[] cellCounts;
+	private int cellCount;
+
+	public SpatialIndex() {
+		latitude = new double[8];
+		longitude = new double[8];
+		size = 0;
+		locatedCount = 0;
+		cellKeys = new long[16];
+		cellNodes = new int[16][];
+		cellCounts = new int[16];
+		cellCount = 0;
+	}
+
+	// Return the amount of Nodes with coordinates
+	public int getLocatedCount() {														//O(1)
+		return locatedCount;
+	}
+
+	// Return whether a Node has coordinates
+	public boolean isLocated(int id) {													//O(1)
+		return id < size && !Double.isNaN(latitude[id]);
+	}
+
+	public double getLatitude(int id) {													//O(1)
+		return id < size ? latitude[id] : Double.NaN;
+	}
+
+	public double getLongitude(int id) {												//O(1)
+		return id < size ? longitude[id] : Double.NaN;
+	}
+
+	// Give a Node its coordinates, returns false (and prints a message) if it already has them or they are invalid
+	public boolean add(int id, double lat, double lon) {								//O(1) amortized
+		if (!(lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180)) {
+			System.out.println(String.format("(%f, %f) are not valid coordinates.", lat, lon));
+			return false;
+		}
+		if (isLocated(id)) {
+			System.out.println("Node already has coordinates.");
+			return false;
+		}
+		if (id >= latitude.length) {
+			int capacity = Math.max(latitude.length * 2, id + 1);
+			double[] moreLatitudes = new double[capacity];
+			double[] moreLongitudes = new double[capacity];
+			for (int i = 0; i < size; i++) {
+				moreLatitudes[i] = latitude[i];
+				moreLongitudes[i] = longitude[i];
+			}
+			latitude = moreLatitudes;
+			longitude = moreLongitudes;
+		}
+		for (int i = size; i <= id; i++) {
+			latitude[i] = Double.NaN;
+			longitude[i] = Double.NaN;
+		}
+		size = Math.max(size, id + 1);
+		latitude[id] = lat;
+		longitude[id] = lon;
+		locatedCount++;
+		int slot = findCell(cellKey(row(lat), column(lon)), true);
+		if (cellCounts[slot] == cellNodes[slot].length) {
+			int[] moreNodes = new int[cellCounts[slot] * 2];
+			for (int i = 0; i < cellCounts[slot]; i++) {
+				moreNodes[i] = cellNodes[slot][i];
+			}
+			cellNodes[slot] = moreNodes;
+		}
+		cellNodes[slot][cellCounts[slot]++] = id;
+		return true;
+	}
+
+	// The great-circle distance in km between two points (haversine formula)
+	public static double distance(double lat1, double lon1, double lat2, double lon2) {	//O(1)
+		double dLat = Math.toRadians(lat2 - lat1);
+		double dLon = Math.toRadians(lon2 - lon1);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+		return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+	}
+
+	// The straight-line distance in km between two located Nodes
+	public double distance(int a, int b) {												//O(1)
+		return distance(latitude[a], longitude[a], latitude[b], longitude[b]);
+	}
+
+	/* Return the ids of the located Nodes within a certain amount of km (straight line) of a point.
+	 * Only the cells overlapping the bounding box of the circle are visited. The box is exact on a sphere:
+	 * the circle spans radius / EARTH_RADIUS radians of latitude and asin(sin(radius / EARTH_RADIUS) / cos(lat))
+	 * of longitude, all longitudes if it contains a pole. */
+	public int[] withinRadius(double lat, double lon, double radius) {					//O(cells in the box + Nodes in them)
+		double angle = radius / EARTH_RADIUS;
+		double latDegrees = Math.toDegrees(angle);
+		int firstRow = row(Math.max(-90, lat - latDegrees));
+		int lastRow = row(Math.min(90, lat + latDegrees));
+		int firstColumn = 0;
+		int lastColumn = columns() - 1;
+		if (lat - latDegrees > -90 && lat + latDegrees < 90) {
+			double lonDegrees = Math.toDegrees(Math.asin(Math.min(1.0, Math.sin(Math.min(angle, Math.PI / 2)) / Math.cos(Math.toRadians(lat)))));
+			if (lonDegrees < 180 && angle < Math.PI / 2) {
+				firstColumn = column(lon - lonDegrees);
+				lastColumn = column(lon + lonDegrees);
+			}
+		}
+		IdList found = new IdList();
+		if ((long) (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1) > 4L * cellCount) {
+			for (int slot = 0; slot < cellKeys.length; slot++) {	// More cells in the box than cells in use: check them all
+				if (cellNodes[slot] != null) {
+					collect(slot, lat, lon, radius, found);
+				}
+			}
+		}
+		else {
+			for (int row = firstRow; row <= lastRow; row++) {
+				for (int c = firstColumn; c <= lastColumn; c++) {
+					int slot = findCell(cellKey(row, c), false);
+					if (slot != -1) {
+						collect(slot, lat, lon, radius, found);
+					}
+				}
+			}
+		}
+		return found.toArray();
+	}
+
+	/* Return the located Node closest to a point in a straight line, -1 if no Node is located.
+	   The radius of the search is doubled until some Node is inside it. */
+	public int nearest(double lat, double lon) {										//O(cells and Nodes within the final radius)
+		if (locatedCount == 0) {
+			return -1;
+		}
+		for (double radius = CELL_DEGREES * KM_PER_DEGREE; ; radius *= 2) {
+			int[] candidates = withinRadius(lat, lon, radius);
+			if (candidates.length > 0 || radius > Math.PI * EARTH_RADIUS) {
+				int best = -1;
+				double bestDistance = Double.POSITIVE_INFINITY;
+				for (int i = 0; i < candidates.length; i++) {
+					double d = distance(lat, lon, latitude[candidates[i]], longitude[candidates[i]]);
+					if (d < bestDistance) {
+						bestDistance = d;
+						best = candidates[i];
+					}
+				}
+				return best;
+			}
+		}
+	}
+
+	// A growing list of ids
+	private static class IdList {
+		private int[] ids = new int[8];
+		private int count = 0;
+
+		public void add(int id) {
+			if (count == ids.length) {
+				int[] more = new int[count * 2];
+				for (int i = 0; i < count; i++) {
+					more[i] = ids[i];
+				}
+				ids = more;
+			}
+			ids[count++] = id;
+		}
+
+		public int[] toArray() {
+			int[] result = new int[count];
+			for (int i = 0; i < count; i++) {
+				result[i] = ids[i];
+			}
+			return result;
+		}
+	}
+
+	// Add the Nodes of a cell which are within the radius of a point to a list
+	private void collect(int slot, double lat, double lon, double radius, IdList found) {
+		for (int i = 0; i < cellCounts[slot]; i++) {
+			int id = cellNodes[slot][i];
+			if (distance(lat, lon, latitude[id], longitude[id]) <= radius) {
+				found.add(id);
+			}
+		}
+	}
+
+	private int row(double lat) {
+		return (int) Math.floor((lat + 90) / CELL_DEGREES);
+	}
+
+	private int column(double lon) {
+		return (int) Math.floor((lon + 180) / CELL_DEGREES);
+	}
+
+	private int columns() {
+		return COLUMNS;
+	}
+
+	private long cellKey(int row, int column) {
+		return (long) row * columns() + Math.floorMod(column, columns());
+	}
+
+	// Return the slot of a cell in the hash table, -1 if it is not there (or a new slot when create is set)
+	private int findCell(long key, boolean create) {									//O(1) on average
+		int mask = cellKeys.length - 1;
+		long h = key * 0x9E3779B97F4A7C15L;
+		int slot = (int) (h ^ (h >>> 32)) & mask;
+		while (cellNodes[slot] != null) {
+			if (cellKeys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (!create) {
+			return -1;
+		}
+		if (2 * (cellCount + 1) > cellKeys.length) {				// Keep the table at most half full
+			rehash();
+			return findCell(key, true);
+		}
+		cellKeys[slot] = key;
+		cellNodes[slot] = new int[2];
+		cellCounts[slot] = 0;
+		cellCount++;
+		return slot;
+	}
+
+	private void rehash() {
+		long[] oldKeys = cellKeys;
+		int[][] oldNodes = cellNodes;
+		int[] oldCounts = cellCounts;
+		cellKeys = new long[oldKeys.length * 2];
+		cellNodes = new int[oldKeys.length * 2][];
+		cellCounts = new int[oldKeys.length * 2];
+		int mask = cellKeys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldNodes[i] != null) {
+				long h = oldKeys[i] * 0x9E3779B97F4A7C15L;
+				int slot = (int) (h ^ (h >>> 32)) & mask;
+				while (cellNodes[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				cellKeys[slot] = oldKeys[i];
+				cellNodes[slot] = oldNodes[i];
+				cellCounts[slot] = oldCounts[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/* This class gives every label (a street name, a number, ...) a dense int id: 0 for the first label added, 1 for the next, and so on.
+ * The ids index arrays, so the search algorithms keep their state in primitive arrays instead of in the Nodes.
+ * Finding the id of a label uses a hash table with open addressing (linear probing): the slot of a label follows
+ * from its hashCode and on a collision the next slot is tried. The table is kept at most half full, so a lookup
+ * checks one or two slots on average and allocates nothing. The labels must have an equals and hashCode which
+ * agree with their compareTo, as String and Integer do.
+ * Author: Seppe Lampe
+ */
+public class SymbolTable {
+	private Comparable[] labels;				// labels[id] is the label with that id
+	private int[] hashes;						// hashes[id] is the spread hashCode of that label, kept so growing does not recompute it
+	private int[] slots;						// slots[i] is the id stored in slot i, -1 for an empty slot
+	private int count;
+
+	public SymbolTable(int capacity) {
+		if (capacity < 4) {
+			capacity = 4;
+		}
+		labels = new Comparable[capacity];
+		hashes = new int[capacity];
+		int slotCount = 8;
+		while (slotCount < capacity * 2) {
+			slotCount *= 2;
+		}
+		slots = new int[slotCount];
+		for (int i = 0; i < slotCount; i++) {
+			slots[i] = -1;
+		}
+		count = 0;
+	}
+
+	// Return the amount of labels
+	public int size() {																	//O(1)
+		return count;
+	}
+
+	// Return the label with a certain id
+	public Comparable getLabel(int id) {												//O(1)
+		return labels[id];
+	}
+
+	// Return the id of a label, -1 if it has no id
+	public int find(Comparable label) {													//O(1) on average
+		int hash = spread(label.hashCode());
+		int mask = slots.length - 1;
+		for (int slot = hash & mask; slots[slot] != -1; slot = (slot + 1) & mask) {
+			int id = slots[slot];
+			if (hashes[id] == hash && labels[id].equals(label)) {
+				return id;
+			}
+		}
+		return -1;
+	}
+
+	// Give a label the next id and return it. If the label already has an id, that id is returned
+	public int add(Comparable label) {													//O(1) on average
+		int hash = spread(label.hashCode());
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while (slots[slot] != -1) {
+			int id = slots[slot];
+			if (hashes[id] == hash && labels[id].equals(label)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (count == labels.length) {
+			Comparable[] moreLabels = new Comparable[count * 2];
+			int[] moreHashes = new int[count * 2];
+			for (int i = 0; i < count; i++) {
+				moreLabels[i] = labels[i];
+				moreHashes[i] = hashes[i];
+			}
+			labels = moreLabels;
+			hashes = moreHashes;
+		}
+		int id = count++;
+		labels[id] = label;
+		hashes[id] = hash;
+		slots[slot] = id;
+		if (count * 2 > slots.length) {
+			rehash(slots.length * 2);
+		}
+		return id;
+	}
+
+	// Return a copy which does not change when labels are added to this table
+	public SymbolTable copy() {															//O(n)
+		SymbolTable result = new SymbolTable(count);
+		for (int i = 0; i < count; i++) {
+			result.add(labels[i]);
+		}
+		return result;
+	}
+
+	private void rehash(int slotCount) {												//O(n)
+		slots = new int[slotCount];
+		for (int i = 0; i < slotCount; i++) {
+			slots[i] = -1;
+		}
+		int mask = slotCount - 1;
+		for (int id = 0; id < count; id++) {
+			int slot = hashes[id] & mask;
+			while (slots[slot] != -1) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id;
+		}
+	}
+
+	// Mix the high bits of a hashCode into the low bits, which choose the slot
+	private static int spread(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -4,9 +4,16 @@
  * pointer (called rightNode) points to an object with a higher value than itself. Only one pointer is aimed
  * at each element. The Tree class has one special TreeNode, called root. This TreeNode does not have a pointer
  * to itself and is used to initiate traversing the Tree.
+ * Every TreeNode also knows the size of its subtree, which is kept up to date by insert, delete and the rotations
+ * of the balanced Trees. With it the value at a position (select) and the position of a value (rank) are found
+ * in one walk down the Tree, e.g. to show one page of a long ordered list.
+ * A whole Tree can be built at once from an array of elements (see build), which is much faster than inserting
+ * them one by one, and an element larger than all others can be appended without comparisons on the way down.
  * Author: Seppe Lampe
  */
 import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class Tree {
 	
@@ -14,17 +21,24 @@ public class Tree {
 		protected Comparable value;
 		protected TreeNode leftNode;
 		protected TreeNode rightNode;				
+		protected int size;							// The amount of TreeNodes in the subtree of this TreeNode, itself included
 
 		public TreeNode(Comparable v) {	
 			value = v;
 			leftNode = null;
 			rightNode = null;					
+			size = 1;
 		}
 
 		public TreeNode(Comparable v, TreeNode left, TreeNode right) {	
 			value = v;					
 			leftNode = left;
 			rightNode = right;					
+			size = 1 + sizeOf(left) + sizeOf(right);
+		}
+
+		public int getSize() { // O(1)
+			return size;
 		}
 
 		public TreeNode getLeftNode() { // O(1)
@@ -61,26 +75,28 @@ public class Tree {
 	// the root of our tree
 	protected TreeNode root;
 	protected int count;
+	private static final int SEQUENTIAL_SORT = 4096;	// Below this amount of elements build sorts on one thread
 
 	public Tree() {
 		root = null;
 	}
 
-	// Searches for a Node based on its value
+	// Searches for a Node based on its value in the subtree of current, null if it is not there
+	// A loop instead of recursion, so a degenerate Tree can not overflow the stack, and one comparison per level
 	protected TreeNode findNode(Comparable element, TreeNode current) { // O(log(n))
-		if (current == null)
-			return new TreeNode(null);
-		else if (element.compareTo(current.value) == 0)
-			return current;
-		else if (element.compareTo(current.value) < 0)
-			return findNode(element, current.getLeftNode());
-		else
-			return findNode(element, current.getRightNode());
+		while (current != null) {
+			int comparison = element.compareTo(current.value);
+			if (comparison == 0)
+				return current;
+			current = comparison < 0 ? current.leftNode : current.rightNode;
+		}
+		return null;
 	}
 
 	public Comparable find(Comparable element) // O(log(n))
 	{
-		return findNode(element, root).getValue();
+		TreeNode n = findNode(element, root);
+		return n == null ? null : n.getValue();
 	}
 
 	// Traverses the Tree in a breadth first manner
@@ -98,18 +114,159 @@ public class Tree {
 		}
 	}
 
-	// Traverses the Tree and performs an action on/at each Node
+	// Traverses the subtree of a Node in order and performs an action on/at each Node, without recursion (see Cursor)
 	public void traverseNode(TreeNode n, TreeAction action) // O(n)
 	{
-		if (n != null) {
-			if (n.getLeftNode() != null)
-				traverseNode(n.getLeftNode(), action);
+		Cursor cursor = new Cursor(n);
+		while (cursor.hasNext()) {
+			action.run(cursor.nextNode());
+		}
+	}
+
+	/* Walks through a (sub)tree in order, smallest value first, without recursion. It keeps the TreeNodes whose
+	   left subtree is being walked on a stack of its own, the next TreeNode on top, so it needs O(depth) memory.
+	   A Cursor can be reset and reused, the stack is only allocated again when a deeper Tree needs more room.
+	   The Tree may not change while a Cursor walks through it. */
+	public class Cursor {
+		private TreeNode[] stack;
+		private int top;
+
+		public Cursor(TreeNode start) {
+			stack = new TreeNode[16];
+			reset(start);
+		}
+
+		// Start again at the smallest value in the subtree of a Node
+		public void reset(TreeNode start) { // O(depth)
+			top = 0;
+			pushLeft(start);
+		}
+
+		// Start again at the smallest value of the Tree
+		public void reset() { // O(depth)
+			reset(root);
+		}
+
+		// Start again at the smallest value of the Tree which is at least low, the smaller values are skipped
+		public void seek(Comparable low) { // O(depth)
+			top = 0;
+			TreeNode n = root;
+			while (n != null) {
+				if (low.compareTo(n.value) <= 0) { // n and its right subtree come after low, its left subtree may as well
+					push(n);
+					n = n.leftNode;
+				} else { // n and its left subtree are smaller than low
+					n = n.rightNode;
+				}
+			}
+		}
+
+		public boolean hasNext() { // O(1)
+			return top > 0;
+		}
+
+		// Returns the next TreeNode in order
+		public TreeNode nextNode() { // O(1) amortized
+			TreeNode n = stack[--top];
+			pushLeft(n.rightNode);
+			return n;
+		}
+
+		// Returns the next value in order
+		public Comparable next() { // O(1) amortized
+			return nextNode().value;
+		}
+
+		// Push a TreeNode and the left spine below it, the smallest value ends up on top
+		private void pushLeft(TreeNode n) {
+			while (n != null) {
+				push(n);
+				n = n.leftNode;
+			}
+		}
+
+		private void push(TreeNode n) {
+			if (top == stack.length) {
+				TreeNode[] larger = new TreeNode[top * 2];
+				for (int i = 0; i < top; i++) {
+					larger[i] = stack[i];
+				}
+				stack = larger;
+			}
+			stack[top++] = n;
+		}
+	}
+
+	// Returns a Cursor at the smallest value of the Tree
+	public Cursor cursor() { // O(log(n))
+		return new Cursor(root);
+	}
+
+	/* Performs an action on/at each Node with a value between low and high (both included), in order.
+	   Only the path to low and the Nodes in the range are visited, the subtrees outside of it are skipped. */
+	public void traverseRange(Comparable low, Comparable high, TreeAction action) { // O(log(n) + k), k values in the range
+		Cursor cursor = new Cursor(null);
+		cursor.seek(low);
+		while (cursor.hasNext()) {
+			TreeNode n = cursor.nextNode();
+			if (high.compareTo(n.value) < 0) {
+				return;
+			}
 			action.run(n);
-			if (n.getRightNode() != null)
-				traverseNode(n.getRightNode(), action);
 		}
 	}
 
+	// Returns the values between low and high (both included) in a Vector, smallest first
+	public Vector range(Comparable low, Comparable high) { // O(log(n) + k), k values in the range
+		Vector result = new Vector(4);
+		traverseRange(low, high, new TreeAction() {
+			public void run(TreeNode n) {
+				result.addLast(n.getValue());
+			}
+		});
+		return result;
+	}
+
+	// Returns the largest value smaller than or equal to an element, null if there is none
+	public Comparable floor(Comparable element) { // O(log(n))
+		return closest(element, true, true);
+	}
+
+	// Returns the smallest value larger than or equal to an element, null if there is none
+	public Comparable ceiling(Comparable element) { // O(log(n))
+		return closest(element, false, true);
+	}
+
+	// Returns the largest value strictly smaller than an element, null if there is none
+	public Comparable lower(Comparable element) { // O(log(n))
+		return closest(element, true, false);
+	}
+
+	// Returns the smallest value strictly larger than an element, null if there is none
+	public Comparable higher(Comparable element) { // O(log(n))
+		return closest(element, false, false);
+	}
+
+	// Walks down to an element and remembers the last value on the wanted side of it (below or above),
+	// every step towards the element only finds values closer to it
+	private Comparable closest(Comparable element, boolean below, boolean inclusive) { // O(log(n))
+		TreeNode current = root;
+		Comparable best = null;
+		while (current != null) {
+			int comparison = element.compareTo(current.value);
+			if (comparison == 0 && inclusive) {
+				return current.value;
+			}
+			if (below ? comparison > 0 : comparison < 0) { // current is on the wanted side, look for one closer to the element
+				best = current.value;
+				current = below ? current.rightNode : current.leftNode;
+			} else {
+				current = below ? current.leftNode : current.rightNode;
+			}
+		}
+		return best;
+	}
+
 	public void traverseInOrder(TreeAction action) { // O(n)
 		traverseNode(root, action);
 	}
@@ -137,40 +294,297 @@ public class Tree {
 	}
 
 	// Adds an element to the Tree
+	// We walk down from the root with a loop, one comparison per level tells whether to stop or where to go
+	// Parent holds the pointer to the TreeNode below which the element is added
 	public void insert(Comparable element) { // O(log(n))
-		insertAtNode(element, root, null);
-	}
-
-	// we traverse the tree.
-	// Current holds the pointer to the TreeNode we are currently checking
-	// Parent holds the pointer to the parent of the current TreeNode
-	private void insertAtNode(Comparable element, TreeNode current, TreeNode parent) { // O(log(n))
-		if (current == null) { // if the node we check is empty
-			TreeNode newNode = new TreeNode(element);
-			if (parent != null) { // the current node is empty, but we have a parent
-				if (element.compareTo(parent.value) < 0) { // do we add it to the left?
-					parent.setLeftNode(newNode);
+		TreeNode parent = null;
+		TreeNode current = root;
+		int comparison = 0;
+		while (current != null) {
+			comparison = element.compareTo(current.value);
+			if (comparison == 0) {
+				System.out.println("Element is already in tree."); // if the element is already in the tree, what to do?
+				changeSizes(element, -1); // undo the sizes counted on the way down
+				return;
+			}
+			current.size += 1; // the new element will be in the subtree of every TreeNode on the way
+			parent = current;
+			current = comparison < 0 ? current.leftNode : current.rightNode; // smaller goes left, bigger goes right
+		}
+		TreeNode newNode = new TreeNode(element);
+		if (parent == null) { // we actually have an empty tree
+			root = newNode;
+		} else {
+			if (comparison < 0) { // the last comparison tells the side
+				parent.setLeftNode(newNode);
+			} else {
+				parent.setRightNode(newNode);
+			}
+			balance(parent);
+		}
+		count += 1;
+	}
+	
+	/* Adds an element which is larger than every element in the Tree, e.g. a new id: it becomes the right child
+	   of the largest TreeNode. Walking down the right side of the Tree needs no comparisons, only the largest
+	   value is compared once. Any other element is inserted as usual. */
+	public void append(Comparable element) { // O(log(n)), one comparison
+		TreeNode last = root;
+		while (last != null && last.rightNode != null) {
+			last = last.rightNode;
+		}
+		if (last == null || element.compareTo(last.value) <= 0) {
+			insert(element);
+			return;
+		}
+		appendAfter(last, element);
+		count += 1;
+	}
+
+	// Adds an element as the right child of the largest TreeNode, last, and corrects the sizes above it
+	protected void appendAfter(TreeNode last, Comparable element) { // O(log(n))
+		for (TreeNode current = root; current != null; current = current.rightNode) {
+			current.size += 1;
+		}
+		last.setRightNode(new TreeNode(element));
+	}
+
+	/* Replaces the contents of the Tree by the elements of an array, duplicates are kept once.
+	   The middle element becomes the root and both halves become its subtrees in the same way, so every TreeNode
+	   is made once, nothing is compared or rotated and the Tree is as balanced as possible. Sorted elements are
+	   used as they are, otherwise a sorted copy is made first with a merge sort on the fork-join pool. */
+	public void build(Comparable[] elements) { // O(n) if sorted, O(n log(n)) otherwise
+		Comparable[] sorted = sortedElements(elements);
+		count = sorted.length;
+		root = count == 0 ? null : buildRange(sorted, 0, count, 0, 31 - Integer.numberOfLeadingZeros(count));
+	}
+
+	// Returns the elements in increasing order without duplicates: the array itself if it already is, otherwise a sorted copy
+	protected Comparable[] sortedElements(Comparable[] elements) { // O(n) if sorted, O(n log(n)) otherwise
+		if (isIncreasing(elements)) {
+			return elements;
+		}
+		Comparable[] sorted = elements.clone();
+		ForkJoinPool.commonPool().invoke(new SortTask(sorted, new Comparable[sorted.length], 0, sorted.length));
+		int unique = removeDuplicates(sorted);
+		if (unique == sorted.length) {
+			return sorted;
+		}
+		Comparable[] result = new Comparable[unique];
+		System.arraycopy(sorted, 0, result, 0, unique);
+		return result;
+	}
+
+	// Builds the subtree of the elements from up to to (excluded), its root is at depth; the deepest TreeNodes are at deepest
+	private TreeNode buildRange(Comparable[] sorted, int from, int to, int depth, int deepest) { // O(to - from)
+		if (from == to) {
+			return null;
+		}
+		int middle = (from + to) >>> 1;
+		TreeNode left = buildRange(sorted, from, middle, depth + 1, deepest);
+		TreeNode right = buildRange(sorted, middle + 1, to, depth + 1, deepest);
+		return buildNode(sorted[middle], left, right, depth, deepest);
+	}
+
+	// Makes the TreeNode of build with its two subtrees, the balanced Trees add what they need to know about it
+	protected TreeNode buildNode(Comparable value, TreeNode left, TreeNode right, int depth, int deepest) { // O(1)
+		TreeNode n = new TreeNode(value, left, right);
+		correctSize(n);
+		return n;
+	}
+
+	// Whether every element is strictly larger than the one before it
+	private boolean isIncreasing(Comparable[] elements) { // O(n)
+		for (int i = 1; i < elements.length; i++) {
+			if (elements[i - 1].compareTo(elements[i]) >= 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Keeps one of every run of equal elements at the front of a sorted array, returns how many are kept
+	private int removeDuplicates(Comparable[] sorted) { // O(n)
+		int unique = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (unique == 0 || sorted[unique - 1].compareTo(sorted[i]) != 0) {
+				sorted[unique++] = sorted[i];
+			}
+		}
+		return unique;
+	}
+
+	/* Sorts elements from up to to (excluded) with a merge sort: both halves are sorted at the same time and
+	   merged through buffer. Small parts are sorted on one thread. */
+	private static class SortTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private Comparable[] elements;
+		private Comparable[] buffer;
+		private int from;
+		private int to;
+
+		public SortTask(Comparable[] elements, Comparable[] buffer, int from, int to) {
+			this.elements = elements;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= SEQUENTIAL_SORT) {
+				sort(from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new SortTask(elements, buffer, from, middle), new SortTask(elements, buffer, middle, to));
+			merge(from, middle, to);
+		}
+
+		private void sort(int from, int to) { // O((to - from) log(to - from))
+			if (to - from < 2) {
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			sort(from, middle);
+			sort(middle, to);
+			merge(from, middle, to);
+		}
+
+		// Merges the sorted parts from ... middle - 1 and middle ... to - 1, equal elements keep their order
+		private void merge(int from, int middle, int to) { // O(to - from)
+			if (elements[middle - 1].compareTo(elements[middle]) <= 0) {		// Already in order
+				return;
+			}
+			System.arraycopy(elements, from, buffer, from, to - from);
+			int i = from;
+			int j = middle;
+			for (int k = from; k < to; k++) {
+				if (j == to || (i < middle && buffer[i].compareTo(buffer[j]) <= 0)) {
+					elements[k] = buffer[i++];
 				} else {
-					parent.setRightNode(newNode); // or do we add it to the right?
+					elements[k] = buffer[j++];
 				}
-				balance(parent);
-			} else { // the current node is empty and it has no parent, we actually have an empty
-						// tree
-				root = newNode;
-			}
-			count += 1;
-		} 
-		else if (element.compareTo(current.value) == 0) {
-			System.out.println("Element is already in tree."); // if the element is already in the tree, what to do?
-		} 
-		else if (element.compareTo(current.value) < 0) { // if the element is smaller than current, go left
-			insertAtNode(element, current.getLeftNode(), current);
-		} 
-		else { // if the element is bigger than current, go right
-			insertAtNode(element, current.getRightNode(), current);
+			}
 		}
 	}
-	
+
+	/* Removes an element from the Tree and returns the removed element, null if it is not in the Tree.
+	   A TreeNode with two children keeps its place but takes the value of its successor (the smallest value of
+	   its right subtree), which has at most one child and is removed instead. */
+	public Comparable delete(Comparable element) { // O(log(n))
+		TreeNode parent = null;
+		TreeNode current = root;
+		int comparison = 0;
+		while (current != null && (comparison = element.compareTo(current.value)) != 0) {
+			parent = current;
+			current = comparison < 0 ? current.getLeftNode() : current.getRightNode();
+		}
+		if (current == null) {
+			System.out.println("Element is not in tree.");
+			return null;
+		}
+		Comparable removed = current.value;
+		changeSizes(element, -1);
+		if (current.getLeftNode() != null && current.getRightNode() != null) {
+			TreeNode successor = current.getRightNode();
+			current.size -= 1;
+			parent = current;
+			while (successor.getLeftNode() != null) {
+				successor.size -= 1;
+				parent = successor;
+				successor = successor.getLeftNode();
+			}
+			current.value = successor.value;
+			current = successor;
+		}
+		TreeNode child = current.getLeftNode() != null ? current.getLeftNode() : current.getRightNode();
+		if (parent == null) {
+			root = child;
+		}
+		else if (parent.getLeftNode() == current) {
+			parent.setLeftNode(child);
+		}
+		else {
+			parent.setRightNode(child);
+		}
+		count -= 1;
+		return removed;
+	}
+
+	// Adds a change to the size of every TreeNode on the path from the root to an element, the TreeNode of
+	// the element itself excluded (up to the end of the path if the element is not in the Tree)
+	protected void changeSizes(Comparable element, int change) { // O(log(n))
+		TreeNode current = root;
+		int comparison;
+		while (current != null && (comparison = element.compareTo(current.value)) != 0) {
+			current.size += change;
+			current = comparison < 0 ? current.leftNode : current.rightNode;
+		}
+	}
+
+	// Returns the size of a subtree, 0 for an empty one
+	protected int sizeOf(TreeNode n) { // O(1)
+		return n == null ? 0 : n.size;
+	}
+
+	// Recomputes the size of a TreeNode from the sizes of its children, e.g. after a rotation
+	protected void correctSize(TreeNode n) { // O(1)
+		if (n != null) {
+			n.size = 1 + sizeOf(n.leftNode) + sizeOf(n.rightNode);
+		}
+	}
+
+	/* Returns the value at a position in the order of the Tree, 0 for the smallest value, null if there is no
+	   such position. The size of the left subtree tells whether the position is left of, at or right of a TreeNode. */
+	public Comparable select(int index) { // O(log(n))
+		TreeNode current = root;
+		while (current != null) {
+			int left = sizeOf(current.leftNode);
+			if (index < left) {
+				current = current.leftNode;
+			} else if (index == left) {
+				return current.value;
+			} else {
+				index -= left + 1;
+				current = current.rightNode;
+			}
+		}
+		return null;
+	}
+
+	// Returns the amount of values smaller than an element, its position in the order if it is in the Tree
+	public int rank(Comparable element) { // O(log(n))
+		return countBelow(element, false);
+	}
+
+	// Returns the amount of values between low and high (both included)
+	public int countBetween(Comparable low, Comparable high) { // O(log(n))
+		if (low.compareTo(high) > 0) {
+			return 0;
+		}
+		return countBelow(high, true) - countBelow(low, false);
+	}
+
+	// Counts the values smaller than an element (or equal to it as well): every step to the right passes a
+	// TreeNode and its left subtree
+	private int countBelow(Comparable element, boolean inclusive) { // O(log(n))
+		int result = 0;
+		TreeNode current = root;
+		while (current != null) {
+			int comparison = element.compareTo(current.value);
+			if (comparison == 0) {
+				return result + sizeOf(current.leftNode) + (inclusive ? 1 : 0);
+			}
+			if (comparison < 0) {
+				current = current.leftNode;
+			} else {
+				result += sizeOf(current.leftNode) + 1;
+				current = current.rightNode;
+			}
+		}
+		return result;
+	}
+
 	// Finds the depth of the Tree
 	// The leafs (null nodes) are not counted towards the depth
 	protected int depth(TreeNode top) { // O(n)			